@@ -0,0 +1,72 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake;
+
+import bitparallel.snake.geometry.Point;
+import bitparallel.snake.geometry.PointWithDeltasXY;
+import bitparallel.snake.geometry.PointXY;
+import bitparallel.snake.random.RandomSource;
+import bitparallel.snake.random.XoshiroRandom;
+
+//
+// builds the snakes used by the benchmarks, lives in the bitparallel.snake package to access the snake's package private stages
+//
+
+final class BenchmarkSnakes
+{
+    private BenchmarkSnakes()
+    {
+    }
+
+    static final Snake hatch(final SnakeSpecies species, final int gridSize, final long seed)
+    {
+        final RandomSource random = new XoshiroRandom(seed);
+        final Snake snake = new SnakeFactory(species, gridSize, gridSize).getSnakeInstance(random.nextLong());
+        snake.getBrain().setRandomState(random);
+
+        return snake;
+    }
+
+    // grows a hatched snake by adding segments along a serpentine path, row by row from the top left of the grid
+    // then starts a survival episode, i.e. the food is placed and the snake is ready to look()
+    //
+    // note, the path may cross the random hatchling, this doesn't matter as the snake is only used to benchmark look()
+    //
+    static final Snake grow(final SnakeSpecies species, final int gridSize, final int length, final long seed)
+    {
+        if (length > ((gridSize * gridSize) >> 1)) throw new IllegalArgumentException("The snake length must not exceed half the grid area, length: " + length + ", grid: " + gridSize);
+
+        final Snake snake = hatch(species, gridSize, seed);
+        final int start = snake.getLength();
+        int previousX = serpentineColumn(start - 1, gridSize), previousY = (start - 1) / gridSize;
+        for (int i = start; i < length; i++)
+        {
+            final int row = i / gridSize;
+            final int column = serpentineColumn(i, gridSize);
+            final Point segment;
+            if (species == SnakeSpecies.ForwardOnly)
+            {
+                segment = new PointWithDeltasXY(column, row, column - previousX, row - previousY);
+            }
+            else
+            {
+                segment = new PointXY(column, row);
+            }
+
+            snake.addHatchling(segment);
+            previousX = column;
+            previousY = row;
+        }
+
+        snake.beginSurvival();
+        return snake;
+    }
+
+    private static final int serpentineColumn(final int index, final int gridSize)
+    {
+        final int row = index / gridSize;
+        return ((row & 1) == 0) ? (index % gridSize) : (gridSize - 1 - (index % gridSize));
+    }
+}
@@ -0,0 +1,73 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+//
+// SnakePit.crossover(), including the mutation of every gene in both offspring and resetting them in place
+//
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CrossoverBenchmark
+{
+    @Param({"FullMovement", "ForwardOnly"})
+    public SnakeSpecies species;
+
+    @Param({"0.05", "0.4"})
+    public double mutationRate;
+
+    private File csvFile;
+    private EvolutionLogger csvLogger;
+    private SnakePit snakePit;
+    private Snake mother, father, daughter, son;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        csvFile = File.createTempFile("crossover-benchmark", ".csv");
+        csvLogger = new EvolutionLogger(csvFile.getPath());
+        snakePit = new SnakePit(new SnakeFactory(species, 40, 40), 2, mutationRate, 1L, 1, csvLogger);
+        mother = BenchmarkSnakes.hatch(species, 40, 2L);
+        father = BenchmarkSnakes.hatch(species, 40, 3L);
+        daughter = BenchmarkSnakes.hatch(species, 40, 4L);
+        son = BenchmarkSnakes.hatch(species, 40, 5L);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        snakePit.shutdown();
+        csvLogger.close();
+        csvFile.delete();
+    }
+
+    @Benchmark
+    public Snake crossover()
+    {
+        snakePit.crossover(mother, father, daughter, son);
+        return daughter;
+    }
+}
@@ -0,0 +1,89 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bitparallel.snake.random.RandomSource;
+import bitparallel.snake.random.XoshiroRandom;
+
+//
+// the per-move cost of the FullMovementSnake food and grid boundary inputs, calculated from scratch vs copied from the FullMovementGeometry tables
+//
+// note, cycles through a fixed set of random head and food positions, so that the branches and table loads aren't trivially predictable
+//
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FullMovementGeometryBenchmark
+{
+    private static final int POSITIONS = 1024;
+
+    @Param({"20", "40", "100"})
+    public int gridSize;
+
+    private FullMovementGeometry geometry;
+    private int[] headX, headY, foodX, foodY;
+    private double[] inputs;
+    private int position;
+
+    @Setup
+    public void setup()
+    {
+        geometry = FullMovementGeometry.getInstance(gridSize, gridSize);
+
+        final RandomSource random = new XoshiroRandom(1L);
+        headX = new int[POSITIONS];
+        headY = new int[POSITIONS];
+        foodX = new int[POSITIONS];
+        foodY = new int[POSITIONS];
+        for (int i = 0; i < POSITIONS; i++)
+        {
+            headX[i] = random.nextInt(gridSize);
+            headY[i] = random.nextInt(gridSize);
+            foodX[i] = random.nextInt(gridSize);
+            foodY[i] = random.nextInt(gridSize);
+        }
+
+        inputs = new double[2 * FullMovementGeometry.DIRECTIONS];
+        position = 0;
+    }
+
+    @Benchmark
+    public double[] calculate()
+    {
+        final int i = position++ & (POSITIONS - 1);
+        FullMovementGeometry.computeFoodInputs(geometry.getGridDiagonal(), headX[i] - foodX[i], headY[i] - foodY[i], inputs, 0);
+        FullMovementGeometry.computeBoundaryInputs(gridSize, gridSize, geometry.getNormalisedGridDiagonal(), headX[i], headY[i], inputs, FullMovementGeometry.DIRECTIONS);
+
+        return inputs;
+    }
+
+    @Benchmark
+    public double[] lookup()
+    {
+        final int i = position++ & (POSITIONS - 1);
+        geometry.copyFoodInputs(headX[i], headY[i], foodX[i], foodY[i], inputs, 0);
+        geometry.copyBoundaryInputs(headX[i], headY[i], inputs, FullMovementGeometry.DIRECTIONS);
+
+        return inputs;
+    }
+}
@@ -0,0 +1,55 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//
+// FullMovementSnake.look() and ForwardOnlySnake.look() for a range of grid sizes and snake lengths
+//
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LookBenchmark
+{
+    @Param({"FullMovement", "ForwardOnly"})
+    public SnakeSpecies species;
+
+    @Param({"20", "40", "100"})
+    public int gridSize;
+
+    @Param({"8", "64", "192"})
+    public int snakeLength;
+
+    private Snake snake;
+
+    @Setup
+    public void setup()
+    {
+        snake = BenchmarkSnakes.grow(species, gridSize, snakeLength, 1L);
+    }
+
+    @Benchmark
+    public double[] look()
+    {
+        return snake.observe();
+    }
+}
@@ -0,0 +1,152 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+import bitparallel.snake.neural.NetworkPrecision;
+
+//
+// asserts that a Float evolution performs as well as the Double evolution, statistically, over a set of seeds
+//
+// usage: ant check, or java bitparallel.snake.PrecisionParityCheck [--key=value ...], an IllegalStateException is thrown on failure
+//
+// keys: species (defaults to every species), seeds (a comma separated list, at least two), maxGenerations, finalGenerations, populationSize,
+//       mutationRate and tolerance
+//
+// notes 1, each seed is evolved in both precisions and scored by the mean best fitness over its last finalGenerations generations, the
+//          Float - Double differences of these scores are then paired by seed, i.e. a paired t-test over the seeds
+//       2, a species fails if the mean difference is significant, i.e. its 95% confidence interval excludes zero, and is also larger than
+//          tolerance relative to the mean Double score, so a real but negligible difference still passes
+//       3, the float forward pass can round a near tie between two outputs differently, after which the two evolutions of a seed are free
+//          to diverge, hence a statistical comparison rather than a generation by generation one, although currently the curves are identical
+//
+
+public class PrecisionParityCheck
+{
+    private static final String DEFAULT_SEEDS = "1,2,3,4,5,6,7,8";
+    private static final int DEFAULT_MAX_GENERATIONS = 40;
+    private static final int DEFAULT_FINAL_GENERATIONS = 10;
+    private static final int DEFAULT_POPULATION_SIZE = 500;
+    private static final double DEFAULT_MUTATION_RATE = 0.4;
+    private static final double DEFAULT_TOLERANCE = 0.05;
+    private static final int GRID_SIZE = 40;
+
+    // the two sided 95% critical values of Student's t distribution for 1 to 30 degrees of freedom, then the normal distribution's
+    //
+    private static final double[] T_CRITICAL_95 = {
+        12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+        2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+        2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042
+    };
+    private static final double Z_CRITICAL_95 = 1.960;
+
+    private static final Logger logger = LogManager.getLogger(PrecisionParityCheck.class);
+
+    public static void main(final String[] args) throws IOException
+    {
+        final RunConfiguration configuration = new RunConfiguration(args);
+        final SnakeSpecies[] speciesList = configuration.contains("species") ? new SnakeSpecies[] {configuration.getEnum("species", SnakeSpecies.class, null)} : SnakeSpecies.values();
+        final String[] seeds = configuration.getString("seeds", DEFAULT_SEEDS).split(",");
+        final int maxGenerations = configuration.getInt("maxGenerations", DEFAULT_MAX_GENERATIONS);
+        final int finalGenerations = configuration.getInt("finalGenerations", DEFAULT_FINAL_GENERATIONS);
+        final int populationSize = configuration.getInt("populationSize", DEFAULT_POPULATION_SIZE);
+        final double mutationRate = configuration.getDouble("mutationRate", DEFAULT_MUTATION_RATE);
+        final double tolerance = configuration.getDouble("tolerance", DEFAULT_TOLERANCE);
+
+        if (seeds.length < 2) throw new IllegalArgumentException("At least two seeds are required for the paired comparison, supplied: " + seeds.length);
+        if ((finalGenerations < 1) || (finalGenerations > maxGenerations)) throw new IllegalArgumentException("The final generations must be in the range [1, " + maxGenerations + "], value: " + finalGenerations);
+
+        int failures = 0;
+        for (final SnakeSpecies species : speciesList)
+        {
+            final double[] doubleScores = new double[seeds.length];
+            final double[] differences = new double[seeds.length];
+            for (int i = 0; i < seeds.length; i++)
+            {
+                final long seed = Long.parseLong(seeds[i].trim());
+                final double doubleScore = evolve(species, NetworkPrecision.Double, seed, maxGenerations, finalGenerations, populationSize, mutationRate);
+                final double floatScore = evolve(species, NetworkPrecision.Float, seed, maxGenerations, finalGenerations, populationSize, mutationRate);
+
+                doubleScores[i] = doubleScore;
+                differences[i] = floatScore - doubleScore;
+                logger.info(species + ", seed: " + seed + ", mean best fitness of the last " + finalGenerations + " generations (Double / Float): " + doubleScore + " / " + floatScore);
+            }
+
+            // the paired t-test, i.e. the mean and standard error of the per seed differences
+            //
+            final int n = differences.length;
+            final double meanDouble = mean(doubleScores);
+            final double meanDifference = mean(differences);
+            double sumOfSquares = 0.0;
+            for (final double difference : differences) sumOfSquares += (difference - meanDifference) * (difference - meanDifference);
+            final double standardError = Math.sqrt(sumOfSquares / (n - 1) / n);
+
+            final double critical = ((n - 1) <= T_CRITICAL_95.length) ? T_CRITICAL_95[n - 2] : Z_CRITICAL_95;
+            final double lower = meanDifference - (critical * standardError);
+            final double upper = meanDifference + (critical * standardError);
+            final double relativeDifference = meanDifference / Math.max(1.0, Math.abs(meanDouble));
+            final boolean significant = (lower > 0.0) || (upper < 0.0);
+
+            final StringBuffer sb = new StringBuffer();
+            sb.append(species).append(", seeds: ").append(n).append(", mean score (Double): ").append(String.format("%.2f", meanDouble));
+            sb.append(", mean difference (Float - Double): ").append(String.format("%.2f (%+.2f%%)", meanDifference, 100.0 * relativeDifference));
+            sb.append(", 95% CI: ").append(String.format("[%.2f, %.2f]", lower, upper));
+            sb.append(", t(").append(n - 1).append("): ").append((standardError == 0.0) ? ((meanDifference == 0.0) ? "0 (identical)" : "inf") : String.format("%.3f", meanDifference / standardError));
+            if (significant && (Math.abs(relativeDifference) > tolerance))
+            {
+                logger.error(sb.append(", significant and outside the tolerance of ").append(tolerance).toString());
+                failures++;
+            }
+            else
+            {
+                logger.info(sb.append(significant ? ", significant but within the tolerance of " + tolerance : ", not significant").toString());
+            }
+        }
+
+        if (failures > 0) throw new IllegalStateException("The Float and Double evolutions differed significantly, by more than " + tolerance + ", for " + failures + " species");
+        logger.info("The Float and Double evolutions agree, tolerance: " + tolerance);
+    }
+
+    // the mean best fitness over the final generations of the evolution, the CSV progress log is discarded
+    //
+    private static final double evolve(final SnakeSpecies species, final NetworkPrecision precision, final long seed, final int maxGenerations, final int finalGenerations, final int populationSize, final double mutationRate) throws IOException
+    {
+        final File csvFile = File.createTempFile("precision-parity-", ".csv");
+        final EvolutionLogger csvLogger = new EvolutionLogger(csvFile.getPath(), DurabilityPolicy.onClose());
+        final SnakeFactory snakeFactory = new SnakeFactory(species, GRID_SIZE, GRID_SIZE, precision);
+        final SnakePit snakePit = new SnakePit(snakeFactory, populationSize, mutationRate, seed, Runtime.getRuntime().availableProcessors(), csvLogger);
+
+        long total = 0;
+        try
+        {
+            while (snakePit.getGeneration() < maxGenerations)
+            {
+                snakePit.spawn();
+                snakePit.survive();
+                if (snakePit.getGeneration() > (maxGenerations - finalGenerations)) total += snakePit.getAnimationSnake().getFitness();
+            }
+        }
+        finally
+        {
+            snakePit.shutdown();
+            csvLogger.close();
+            if (!csvFile.delete()) logger.warn("Unable to delete " + csvFile + ", ignored...");
+        }
+
+        return (double)total / finalGenerations;
+    }
+
+    private static final double mean(final double[] values)
+    {
+        double sum = 0.0;
+        for (final double value : values) sum += value;
+        return sum / values.length;
+    }
+}
@@ -0,0 +1,165 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+import bitparallel.snake.neural.NetworkPrecision;
+import bitparallel.snake.neural.NetworkState;
+import bitparallel.snake.neural.NeuralNetwork;
+import bitparallel.snake.random.RandomSource;
+import bitparallel.snake.random.XoshiroRandom;
+
+//
+// asserts that the Int16 and Int8 networks choose the same moves as the Double network, i.e. their action agreement
+//
+// usage: ant check, or java bitparallel.snake.QuantizedAgreementCheck [--key=value ...], an IllegalStateException is thrown on failure
+//
+// keys: species (defaults to every species), seed, maxGenerations, populationSize, mutationRate, snakes (the fittest evaluated), int16Threshold
+//       and int8Threshold
+//
+// notes 1, a Double population is evolved, then each of its fittest snakes plays an episode driven by its Double brain whilst the same
+//          genome, quantized, is run on every look() input of that episode, i.e. the quantized networks are compared on realistic inputs
+//       2, a decision agrees if both networks give the same set of maximal outputs, the movement breaks any tie using the snake's own
+//          random source, so this is exactly the condition under which the quantized network would have made the same move
+//       3, the default thresholds leave a margin below the measured agreement, Int16 100% and Int8 98.4% to 99.3%, see QuantizedNetwork
+//
+
+public class QuantizedAgreementCheck
+{
+    private static final long DEFAULT_SEED = 42;
+    private static final int DEFAULT_MAX_GENERATIONS = 40;
+    private static final int DEFAULT_POPULATION_SIZE = 2000;
+    private static final int DEFAULT_SNAKES = 500;
+    private static final double DEFAULT_INT16_THRESHOLD = 0.999;
+    private static final double DEFAULT_INT8_THRESHOLD = 0.97;
+    private static final double DEFAULT_MUTATION_RATE = 0.4;
+    private static final int GRID_SIZE = 40;
+
+    private static final Logger logger = LogManager.getLogger(QuantizedAgreementCheck.class);
+
+    public static void main(final String[] args) throws IOException
+    {
+        final RunConfiguration configuration = new RunConfiguration(args);
+        final SnakeSpecies[] speciesList = configuration.contains("species") ? new SnakeSpecies[] {configuration.getEnum("species", SnakeSpecies.class, null)} : SnakeSpecies.values();
+        final long seed = configuration.getLong("seed", DEFAULT_SEED);
+        final int maxGenerations = configuration.getInt("maxGenerations", DEFAULT_MAX_GENERATIONS);
+        final int populationSize = configuration.getInt("populationSize", DEFAULT_POPULATION_SIZE);
+        final double mutationRate = configuration.getDouble("mutationRate", DEFAULT_MUTATION_RATE);
+        final int snakeCount = configuration.getInt("snakes", DEFAULT_SNAKES);
+        final double int16Threshold = configuration.getDouble("int16Threshold", DEFAULT_INT16_THRESHOLD);
+        final double int8Threshold = configuration.getDouble("int8Threshold", DEFAULT_INT8_THRESHOLD);
+
+        int failures = 0;
+        for (final SnakeSpecies species : speciesList)
+        {
+            final MigrantGenomes fittest = evolve(species, seed, maxGenerations, populationSize, mutationRate, snakeCount);
+            final SnakeFactory doubleFactory = new SnakeFactory(species, GRID_SIZE, GRID_SIZE, NetworkPrecision.Double);
+            final NeuralNetwork int16Brain = new SnakeFactory(species, GRID_SIZE, GRID_SIZE, NetworkPrecision.Int16).getSnakeInstance(0).getBrain();
+            final NeuralNetwork int8Brain = new SnakeFactory(species, GRID_SIZE, GRID_SIZE, NetworkPrecision.Int8).getSnakeInstance(0).getBrain();
+
+            // note, the episodes are hatched from their own seeds, i.e. not those of the evaluation
+            //
+            final RandomSource random = new XoshiroRandom(seed);
+            long decisions = 0, int16Agreements = 0, int8Agreements = 0;
+            for (int rank = 0; rank < fittest.getCount(); rank++)
+            {
+                final Snake snake = doubleFactory.getSnakeInstance(random.nextLong());
+                final NetworkState state = new NetworkState(fittest.getLayerSizes(), fittest.getGenome(rank));
+                snake.getBrain().setState(state);
+                int16Brain.setState(state);
+                int8Brain.setState(state);
+
+                final NeuralNetwork doubleBrain = snake.getBrain();
+                final double[] doubleOutputs = new double[doubleBrain.getNumberOfOutputs()];
+                final double[] int16Outputs = new double[doubleOutputs.length];
+                final double[] int8Outputs = new double[doubleOutputs.length];
+
+                snake.beginSurvival();
+                while (snake.isAlive())
+                {
+                    final double[] inputs = snake.observe();
+                    doubleBrain.think(inputs, doubleOutputs);
+                    int16Brain.think(inputs, int16Outputs);
+                    int8Brain.think(inputs, int8Outputs);
+
+                    final int decision = getMaximalOutputs(doubleOutputs);
+                    if (getMaximalOutputs(int16Outputs) == decision) int16Agreements++;
+                    if (getMaximalOutputs(int8Outputs) == decision) int8Agreements++;
+                    decisions++;
+
+                    snake.move(doubleOutputs);
+                }
+            }
+
+            if (!report(species, NetworkPrecision.Int16, int16Agreements, decisions, int16Threshold)) failures++;
+            if (!report(species, NetworkPrecision.Int8, int8Agreements, decisions, int8Threshold)) failures++;
+        }
+
+        if (failures > 0) throw new IllegalStateException("The quantized networks' action agreement fell below the threshold in " + failures + " case(s)");
+        logger.info("The quantized networks agree with the Double network, thresholds: Int16 " + int16Threshold + ", Int8 " + int8Threshold);
+    }
+
+    // copies of the fittest genomes of the final generation, the CSV progress log is discarded
+    //
+    private static final MigrantGenomes evolve(final SnakeSpecies species, final long seed, final int maxGenerations, final int populationSize, final double mutationRate, final int snakeCount) throws IOException
+    {
+        final File csvFile = File.createTempFile("quantized-agreement-", ".csv");
+        final EvolutionLogger csvLogger = new EvolutionLogger(csvFile.getPath(), DurabilityPolicy.onClose());
+        final SnakeFactory snakeFactory = new SnakeFactory(species, GRID_SIZE, GRID_SIZE, NetworkPrecision.Double);
+        final SnakePit snakePit = new SnakePit(snakeFactory, populationSize, mutationRate, seed, Runtime.getRuntime().availableProcessors(), csvLogger);
+
+        try
+        {
+            while (snakePit.getGeneration() < maxGenerations)
+            {
+                snakePit.spawn();
+                snakePit.survive();
+            }
+
+            return snakePit.getEmigrants(0, Math.min(snakeCount, populationSize));
+        }
+        finally
+        {
+            snakePit.shutdown();
+            csvLogger.close();
+            if (!csvFile.delete()) logger.warn("Unable to delete " + csvFile + ", ignored...");
+        }
+    }
+
+    // a bit per output, set if the output is the maximum, i.e. the candidates for the move
+    //
+    private static final int getMaximalOutputs(final double[] outputs)
+    {
+        double maximum = outputs[0];
+        for (int i = 1; i < outputs.length; i++) maximum = Math.max(maximum, outputs[i]);
+
+        int mask = 0;
+        for (int i = 0; i < outputs.length; i++)
+        {
+            if (outputs[i] == maximum) mask |= (1 << i);
+        }
+
+        return mask;
+    }
+
+    private static final boolean report(final SnakeSpecies species, final NetworkPrecision precision, final long agreements, final long decisions, final double threshold)
+    {
+        final double agreement = (decisions == 0) ? 1.0 : ((double)agreements / decisions);
+        final String message = String.format("%s, %s, action agreement: %.3f%% (%d of %d decisions), threshold: %.3f%%", species, precision, 100.0 * agreement, agreements, decisions, 100.0 * threshold);
+        if (agreement < threshold)
+        {
+            logger.error(message);
+            return false;
+        }
+
+        logger.info(message);
+        return true;
+    }
+}
@@ -0,0 +1,57 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//
+// a complete Snake.survive() episode, each invocation uses a newly hatched snake with a random brain
+//
+// note, an episode runs for hundreds of moves, so the per invocation setup cost is insignificant
+//
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SurviveBenchmark
+{
+    @Param({"FullMovement", "ForwardOnly"})
+    public SnakeSpecies species;
+
+    @Param({"20", "40", "100"})
+    public int gridSize;
+
+    private long seed;
+    private Snake snake;
+
+    @Setup(Level.Invocation)
+    public void hatch()
+    {
+        snake = BenchmarkSnakes.hatch(species, gridSize, seed++);
+    }
+
+    @Benchmark
+    public long survive()
+    {
+        snake.survive();
+        return snake.getFitness();
+    }
+}
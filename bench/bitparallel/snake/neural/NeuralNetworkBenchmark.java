@@ -0,0 +1,71 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake.neural;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bitparallel.snake.SnakeFactory;
+import bitparallel.snake.SnakeSpecies;
+import bitparallel.snake.random.RandomSource;
+import bitparallel.snake.random.XoshiroRandom;
+
+//
+// NeuralNetwork.think() for the SnakeFactory topologies, i.e. FullMovement (24-16-20-4) and ForwardOnly (6-6-8-3), in each precision
+//
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class NeuralNetworkBenchmark
+{
+    @Param({"FullMovement", "ForwardOnly"})
+    public SnakeSpecies topology;
+
+    @Param({"Double", "Float", "Int16", "Int8"})
+    public NetworkPrecision precision;
+
+    private NeuralNetwork network;
+    private double[] inputs, outputs;
+
+    @Setup
+    public void setup()
+    {
+        final RandomSource random = new XoshiroRandom(1L);
+        network = new SnakeFactory(topology, 40, 40, precision).getSnakeInstance(random.nextLong()).getBrain();
+        network.setRandomState(random);
+
+        inputs = new double[network.getNumberOfInputs()];
+        for (int i = 0; i < inputs.length; i++) inputs[i] = (2.0 * random.nextDouble()) - 1.0;
+        outputs = new double[network.getNumberOfOutputs()];
+    }
+
+    @Benchmark
+    public double[] think()
+    {
+        network.think(inputs, outputs);
+        return outputs;
+    }
+
+    @Benchmark
+    public double[] thinkAllocating()
+    {
+        return network.think(inputs);
+    }
+}
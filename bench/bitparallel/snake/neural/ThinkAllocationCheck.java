@@ -0,0 +1,87 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake.neural;
+
+import java.lang.management.ManagementFactory;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+import bitparallel.snake.SnakeFactory;
+import bitparallel.snake.SnakeSpecies;
+import bitparallel.snake.random.RandomSource;
+import bitparallel.snake.random.XoshiroRandom;
+
+//
+// asserts that NeuralNetwork.think(inputs, outputs) allocates nothing, for the SnakeFactory topologies in each precision
+//
+// usage: ant check, or java bitparallel.snake.neural.ThinkAllocationCheck, an IllegalStateException is thrown on failure
+//
+// notes 1, the calls are measured by the current thread's allocation counter (HotSpot's com.sun.management.ThreadMXBean) after a warm up
+//          long enough for the JIT to compile think(), i.e. the steady state that the evolution actually runs in
+//       2, the counter's own overhead is measured over an empty loop and discounted, it is normally zero
+//
+
+public class ThinkAllocationCheck
+{
+    private static final int WARM_UP_CALLS = 200000;
+    private static final int MEASURED_CALLS = 100000;
+
+    private static final Logger logger = LogManager.getLogger(ThinkAllocationCheck.class);
+
+    public static void main(final String[] args)
+    {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean) || !((com.sun.management.ThreadMXBean)bean).isThreadAllocatedMemorySupported())
+        {
+            throw new IllegalStateException("Unable to check the allocations, the thread allocation counters are unsupported by this JVM");
+        }
+
+        final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean)bean;
+        if (!threadBean.isThreadAllocatedMemoryEnabled()) threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        int failures = 0;
+        for (final SnakeSpecies topology : SnakeSpecies.values())
+        {
+            for (final NetworkPrecision precision : NetworkPrecision.values())
+            {
+                final long bytes = measure(threadBean, topology, precision);
+                if (bytes == 0)
+                {
+                    logger.info("think(): " + topology + ", " + precision + ", 0 bytes allocated over " + MEASURED_CALLS + " calls");
+                }
+                else
+                {
+                    logger.error("think(): " + topology + ", " + precision + ", " + bytes + " bytes allocated over " + MEASURED_CALLS + " calls");
+                    failures++;
+                }
+            }
+        }
+
+        if (failures > 0) throw new IllegalStateException("NeuralNetwork.think(inputs, outputs) allocated in " + failures + " configuration(s)");
+        logger.info("NeuralNetwork.think(inputs, outputs) is allocation free");
+    }
+
+    private static final long measure(final com.sun.management.ThreadMXBean threadBean, final SnakeSpecies topology, final NetworkPrecision precision)
+    {
+        final RandomSource random = new XoshiroRandom(1L);
+        final NeuralNetwork network = new SnakeFactory(topology, 40, 40, precision).getSnakeInstance(random.nextLong()).getBrain();
+        network.setRandomState(random);
+
+        final double[] inputs = new double[network.getNumberOfInputs()];
+        for (int i = 0; i < inputs.length; i++) inputs[i] = (2.0 * random.nextDouble()) - 1.0;
+        final double[] outputs = new double[network.getNumberOfOutputs()];
+
+        final long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < WARM_UP_CALLS; i++) network.think(inputs, outputs);
+
+        long startBytes = threadBean.getThreadAllocatedBytes(threadId);
+        final long overheadBytes = threadBean.getThreadAllocatedBytes(threadId) - startBytes;
+
+        startBytes = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_CALLS; i++) network.think(inputs, outputs);
+        return threadBean.getThreadAllocatedBytes(threadId) - startBytes - overheadBytes;
+    }
+}
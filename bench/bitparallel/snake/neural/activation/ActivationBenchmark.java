@@ -0,0 +1,102 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake.neural.activation;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//
+// the Activation implementations, each operation thresholds a single value, measured over a range of [-4.0, 4.0] inputs
+//
+//   threshold(), one call per value
+//   apply(), in bulk, i.e. as the networks now call it, once per layer
+//
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ActivationBenchmark
+{
+    private static final int INPUT_COUNT = 1024;
+
+    @Param({"ReLU", "ExpLU", "ExpLU-approximate", "Sigmoid", "Sigmoid-approximate"})
+    public String activationName;
+
+    private Activation activation;
+    private double[] inputs, values;
+
+    @Setup
+    public void setup()
+    {
+        activation = createActivation(activationName);
+
+        final Random random = new Random(1L);
+        inputs = new double[INPUT_COUNT];
+        for (int i = 0; i < INPUT_COUNT; i++) inputs[i] = (8.0 * random.nextDouble()) - 4.0;
+        values = new double[INPUT_COUNT];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INPUT_COUNT)
+    public double threshold()
+    {
+        double sum = 0.0;
+        for (int i = 0; i < INPUT_COUNT; i++) sum += activation.threshold(inputs[i]);
+
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INPUT_COUNT)
+    public double[] apply()
+    {
+        System.arraycopy(inputs, 0, values, 0, INPUT_COUNT);
+        activation.apply(values, 0, INPUT_COUNT);
+
+        return values;
+    }
+
+    // note, also used by NetworkActivationBenchmark
+    //
+    static final Activation createActivation(final String name)
+    {
+        switch (name)
+        {
+            case "ReLU":
+                return new ReLU();
+
+            case "ExpLU":
+                return new ExpLU();
+
+            case "ExpLU-approximate":
+                return new ExpLU(0.3, true);
+
+            case "Sigmoid":
+                return new Sigmoid();
+
+            case "Sigmoid-approximate":
+                return new Sigmoid(1.0, true);
+
+            default:
+                throw new IllegalArgumentException("Unknown activation: " + name);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake.neural.activation;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bitparallel.snake.SnakeFactory;
+import bitparallel.snake.SnakeSpecies;
+import bitparallel.snake.neural.NeuralNetwork;
+import bitparallel.snake.random.RandomSource;
+import bitparallel.snake.random.XoshiroRandom;
+
+//
+// NeuralNetwork.think() for the SnakeFactory topologies, i.e. FullMovement (24-16-20-4) and ForwardOnly (6-6-8-3), with each activation
+// note, the factory's networks are ReLU, so the network is rebuilt with the factory's layer sizes and the chosen activation
+//
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class NetworkActivationBenchmark
+{
+    @Param({"FullMovement", "ForwardOnly"})
+    public SnakeSpecies topology;
+
+    @Param({"ReLU", "ExpLU", "ExpLU-approximate", "Sigmoid", "Sigmoid-approximate"})
+    public String activationName;
+
+    private NeuralNetwork network;
+    private double[] inputs, outputs;
+
+    @Setup
+    public void setup()
+    {
+        final RandomSource random = new XoshiroRandom(1L);
+        final int[] layerSizes = new SnakeFactory(topology, 40, 40).getSnakeInstance(random.nextLong()).getBrain().getLayerSizes();
+        final int[] hiddenLayerSizes = Arrays.copyOfRange(layerSizes, 1, layerSizes.length - 1);
+        network = new NeuralNetwork(ActivationBenchmark.createActivation(activationName), layerSizes[0], layerSizes[layerSizes.length - 1], hiddenLayerSizes);
+        network.setRandomState(random);
+
+        inputs = new double[network.getNumberOfInputs()];
+        for (int i = 0; i < inputs.length; i++) inputs[i] = (2.0 * random.nextDouble()) - 1.0;
+        outputs = new double[network.getNumberOfOutputs()];
+    }
+
+    @Benchmark
+    public double[] think()
+    {
+        network.think(inputs, outputs);
+        return outputs;
+    }
+}
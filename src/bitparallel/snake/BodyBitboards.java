@@ -0,0 +1,152 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake;
+
+//
+// the snake's body held as four sets of bitboards, one bit per grid cell in each, so that the distance from any cell to the
+// nearest body segment in each of the 8 compass directions is found with a handful of word scans, regardless of the snake's length
+//
+//   rows, one line per y, indexed by x
+//   columns, one line per x, indexed by y
+//   diagonals, one line per (x - y), running north west to south east, indexed by x
+//   anti-diagonals, one line per (x + y), running south west to north east, indexed by x
+//
+// notes 1, each line is a whole number of longs, bit (i & 63) of word (i >>> 6) represents position i along the line
+//       2, the scans use Long.numberOfTrailingZeros() / numberOfLeadingZeros(), so only words between the cell and the nearest segment are read
+//       3, the distances are in cells along the line, i.e. the x (or y) difference, 0 is returned if there is no segment in that direction
+//       4, the rows also serve as the occupancy bitset used for collision detection
+//
+
+public class BodyBitboards
+{
+    private final int gridHeight;
+    private final int rowWords, columnWords;
+    private final long[] rows, columns, diagonals, antiDiagonals;
+
+    public BodyBitboards(final int gridWidth, final int gridHeight)
+    {
+        this.gridHeight = gridHeight;
+
+        rowWords = (gridWidth + 63) >>> 6;
+        columnWords = (gridHeight + 63) >>> 6;
+
+        // note, there are (gridWidth + gridHeight - 1) diagonals in each direction, the diagonal lines are indexed by x so are row sized
+        //
+        rows = new long[gridHeight * rowWords];
+        columns = new long[gridWidth * columnWords];
+        diagonals = new long[(gridWidth + gridHeight - 1) * rowWords];
+        antiDiagonals = new long[(gridWidth + gridHeight - 1) * rowWords];
+    }
+
+    public final void set(final int x, final int y)
+    {
+        final long xBit = 1L << x, yBit = 1L << y;
+        final int xWord = x >>> 6;
+
+        rows[(y * rowWords) + xWord] |= xBit;
+        columns[(x * columnWords) + (y >>> 6)] |= yBit;
+        diagonals[(diagonal(x, y) * rowWords) + xWord] |= xBit;
+        antiDiagonals[((x + y) * rowWords) + xWord] |= xBit;
+    }
+
+    public final void clear(final int x, final int y)
+    {
+        final long xBit = 1L << x, yBit = 1L << y;
+        final int xWord = x >>> 6;
+
+        rows[(y * rowWords) + xWord] &= ~xBit;
+        columns[(x * columnWords) + (y >>> 6)] &= ~yBit;
+        diagonals[(diagonal(x, y) * rowWords) + xWord] &= ~xBit;
+        antiDiagonals[((x + y) * rowWords) + xWord] &= ~xBit;
+    }
+
+    public final boolean isSet(final int x, final int y)
+    {
+        return (rows[(y * rowWords) + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    //
+    // the distance to the nearest segment in each direction, excluding the cell at (x, y) itself
+    // note, northerly is towards y = 0 and westerly is towards x = 0
+    //
+
+    public final int north(final int x, final int y)
+    {
+        return distanceBefore(columns, x * columnWords, y);
+    }
+
+    public final int south(final int x, final int y)
+    {
+        return distanceAfter(columns, x * columnWords, columnWords, y);
+    }
+
+    public final int east(final int x, final int y)
+    {
+        return distanceAfter(rows, y * rowWords, rowWords, x);
+    }
+
+    public final int west(final int x, final int y)
+    {
+        return distanceBefore(rows, y * rowWords, x);
+    }
+
+    public final int northEast(final int x, final int y)
+    {
+        return distanceAfter(antiDiagonals, (x + y) * rowWords, rowWords, x);
+    }
+
+    public final int southEast(final int x, final int y)
+    {
+        return distanceAfter(diagonals, diagonal(x, y) * rowWords, rowWords, x);
+    }
+
+    public final int southWest(final int x, final int y)
+    {
+        return distanceBefore(antiDiagonals, (x + y) * rowWords, x);
+    }
+
+    public final int northWest(final int x, final int y)
+    {
+        return distanceBefore(diagonals, diagonal(x, y) * rowWords, x);
+    }
+
+    private final int diagonal(final int x, final int y)
+    {
+        return x - y + gridHeight - 1;
+    }
+
+    // the distance to the nearest set bit above the given position
+    //
+    private static final int distanceAfter(final long[] lines, final int lineStart, final int lineWords, final int position)
+    {
+        int word = position >>> 6;
+
+        // note, -2L << 63 is 0, i.e. there is nothing above the top bit of a word
+        //
+        long bits = lines[lineStart + word] & (-2L << position);
+        while (bits == 0)
+        {
+            if (++word == lineWords) return 0;
+            bits = lines[lineStart + word];
+        }
+
+        return ((word << 6) + Long.numberOfTrailingZeros(bits)) - position;
+    }
+
+    // the distance to the nearest set bit below the given position
+    //
+    private static final int distanceBefore(final long[] lines, final int lineStart, final int position)
+    {
+        int word = position >>> 6;
+        long bits = lines[lineStart + word] & ((1L << position) - 1);
+        while (bits == 0)
+        {
+            if (--word < 0) return 0;
+            bits = lines[lineStart + word];
+        }
+
+        return position - ((word << 6) + 63 - Long.numberOfLeadingZeros(bits));
+    }
+}
@@ -0,0 +1,108 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake;
+
+//
+// controls how often the EvolutionLogger forces its records to disk, i.e. performs an fsync()
+//
+//   EveryRecord, after each batch of written records, no record is ever left unsynced once the writer thread goes idle
+//   EveryNRecords, once at least N records have been written since the last sync
+//   Periodic, at most every T milliseconds, whilst there are unsynced records
+//   OnClose, only when the logger is closed
+//
+// note, parse() accepts "record", "records:<N>", "millis:<T>" or "close", as used by the run configuration
+//
+
+public final class DurabilityPolicy
+{
+    public enum Type
+    {
+        EveryRecord,
+        EveryNRecords,
+        Periodic,
+        OnClose
+    }
+
+    private final Type type;
+    private final int records;
+    private final long millis;
+
+    private DurabilityPolicy(final Type type, final int records, final long millis)
+    {
+        this.type = type;
+        this.records = records;
+        this.millis = millis;
+    }
+
+    public static final DurabilityPolicy everyRecord()
+    {
+        return new DurabilityPolicy(Type.EveryRecord, 1, 0);
+    }
+
+    public static final DurabilityPolicy everyNRecords(final int records)
+    {
+        if (records < 1) throw new IllegalArgumentException("The record count must be at least 1, value: " + records);
+        return new DurabilityPolicy(Type.EveryNRecords, records, 0);
+    }
+
+    public static final DurabilityPolicy periodic(final long millis)
+    {
+        if (millis < 1) throw new IllegalArgumentException("The sync period must be at least 1 ms, value: " + millis);
+        return new DurabilityPolicy(Type.Periodic, 0, millis);
+    }
+
+    public static final DurabilityPolicy onClose()
+    {
+        return new DurabilityPolicy(Type.OnClose, 0, 0);
+    }
+
+    public static final DurabilityPolicy parse(final String policy)
+    {
+        try
+        {
+            if (policy.equals("record")) return everyRecord();
+            if (policy.startsWith("records:")) return everyNRecords(Integer.parseInt(policy.substring(8)));
+            if (policy.startsWith("millis:")) return periodic(Long.parseLong(policy.substring(7)));
+            if (policy.equals("close")) return onClose();
+        }
+        catch (NumberFormatException ex)
+        {
+            // fall through to the exception below
+        }
+
+        throw new IllegalArgumentException("Bad durability policy: " + policy + ", expected record, records:<N>, millis:<T> or close");
+    }
+
+    public final Type getType()
+    {
+        return type;
+    }
+
+    public final int getRecords()
+    {
+        return records;
+    }
+
+    public final long getMillis()
+    {
+        return millis;
+    }
+
+    @Override
+    public String toString()
+    {
+        switch (type)
+        {
+            case EveryNRecords:
+                return type + " (" + records + ")";
+
+            case Periodic:
+                return type + " (" + millis + " ms)";
+
+            default:
+                return type.toString();
+        }
+    }
+}
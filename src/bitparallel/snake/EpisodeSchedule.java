@@ -0,0 +1,81 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake;
+
+import bitparallel.snake.random.RandomSource;
+
+//
+// the common random numbers used to evaluate a generation, i.e. the same set of episodes (games) is played by every snake
+// so a snake's fitness reflects its brain rather than the luck of its particular hatchling and food placement
+//
+//   hatchling seeds, one per episode, each snake's random source is reseeded with it before hatching, so every snake hatches identically
+//   food cells, a random permutation of the grid's (y * gridWidth + x) cell indices per episode, the food is placed on the next cell
+//               in the permutation that isn't occupied by the snake, wrapping around as required, see Snake.createFood()
+//
+// notes 1, regenerated once per generation by the snake pit, from its master random source, so the results remain reproducible
+//       2, held as primitive arrays and only ever read during the evaluation, so shared by every evaluation thread
+//       3, the permutation samples the cells without replacement, i.e. the food always lands on a free cell without any rejection
+//          sampling, so all snakes see the same sequence, only skipping the cells their own bodies occupy
+//
+
+public class EpisodeSchedule
+{
+    private final int episodeCount, cellCount;
+    private final long[] hatchlingSeeds;
+    private final int[] foodCells;
+
+    public EpisodeSchedule(final int episodeCount, final int gridWidth, final int gridHeight)
+    {
+        if (episodeCount < 1) throw new IllegalArgumentException("At least one episode is required, value: " + episodeCount);
+
+        this.episodeCount = episodeCount;
+
+        cellCount = gridWidth * gridHeight;
+        hatchlingSeeds = new long[episodeCount];
+        foodCells = new int[episodeCount * cellCount];
+    }
+
+    // note, the draws are made on the calling thread, i.e. before the evaluation begins
+    //
+    public final void generate(final RandomSource random)
+    {
+        for (int episode = 0; episode < episodeCount; episode++)
+        {
+            hatchlingSeeds[episode] = random.nextLong();
+
+            // fisher-yates shuffle
+            //
+            final int base = episode * cellCount;
+            for (int i = 0; i < cellCount; i++) foodCells[base + i] = i;
+            for (int i = cellCount - 1; i > 0; i--)
+            {
+                final int j = random.nextInt(i + 1);
+                final int cell = foodCells[base + i];
+                foodCells[base + i] = foodCells[base + j];
+                foodCells[base + j] = cell;
+            }
+        }
+    }
+
+    public final int getEpisodeCount()
+    {
+        return episodeCount;
+    }
+
+    public final int getCellCount()
+    {
+        return cellCount;
+    }
+
+    public final long getHatchlingSeed(final int episode)
+    {
+        return hatchlingSeeds[episode];
+    }
+
+    public final int getFoodCell(final int episode, final int index)
+    {
+        return foodCells[(episode * cellCount) + index];
+    }
+}
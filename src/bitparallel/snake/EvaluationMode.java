@@ -0,0 +1,18 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake;
+
+//
+// how SnakePit evaluates each generation
+//
+//   PerSnake, each snake survives from start to finish before the next snake is evaluated
+//   Lockstep, the snakes are advanced one move at a time with their networks iterated as a batch, see LockstepEvaluator
+//
+
+public enum EvaluationMode
+{
+    PerSnake,
+    Lockstep
+}
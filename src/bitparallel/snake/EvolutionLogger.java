@@ -12,37 +12,245 @@ import java.io.FileOutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.SyncFailedException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
+import bitparallel.snake.metrics.EvolutionMetrics;
+import bitparallel.snake.metrics.Phase;
+
+//
+// an asynchronous CSV writer, the calling thread only ever enqueues a record
+//
+// notes 1, records are placed on a bounded queue, a background thread formats and writes them in batches
+//          should the queue fill, the caller blocks until there is space, i.e. records are never dropped
+//       2, the background thread forces the data to disk as dictated by the DurabilityPolicy, and always when closed
+//       3, the records are passed as primitive columns, the formatting happens on the background thread
+//       4, should metrics be set, each fsync is timed on the background thread, see Phase.Fsync
+//
+
 public class EvolutionLogger
 {
     private static final Logger logger = LogManager.getLogger(EvolutionLogger.class);
 
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final Record CLOSE_RECORD = new Record(null, null);
+
     private final String fileName;
     private final FileOutputStream fos;
     private final PrintWriter writer;
+    private final DurabilityPolicy durabilityPolicy;
+    private final BlockingQueue<Record> queue;
+    private final Thread writerThread;
+    private volatile EvolutionMetrics metrics;
+    private volatile boolean closed;
 
     public EvolutionLogger(final String fileName) throws IOException
+    {
+        this(fileName, DurabilityPolicy.everyRecord());
+    }
+
+    public EvolutionLogger(final String fileName, final DurabilityPolicy durabilityPolicy) throws IOException
     {
         this.fileName = fileName;
+        this.durabilityPolicy = durabilityPolicy;
 
         fos = new FileOutputStream(fileName);
         writer = new PrintWriter(new OutputStreamWriter(new BufferedOutputStream(fos), StandardCharsets.UTF_8.toString()));
+        queue = new ArrayBlockingQueue<Record>(QUEUE_CAPACITY);
+        metrics = null;
+        closed = false;
+
+        // note, a daemon so that an unclosed logger can't prevent the JVM from exiting
+        //
+        writerThread = new Thread(this::write, "evolution-logger");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        logger.info("Logging evolution progress to " + fileName + ", durability: " + durabilityPolicy);
     }
 
+    // prefixes the supplied name with the current date and time, i.e. YYYY-MM-DD-HHMMSS-<name>
+    //
+    public static final String timeStampedFileName(final String name)
+    {
+        final Calendar calendar = Calendar.getInstance();
+        final StringBuffer timeStamp = new StringBuffer();
+        timeStamp.append(calendar.get(Calendar.YEAR));
+        timeStamp.append("-");
+        timeStamp.append(twoDigits(1 + calendar.get(Calendar.MONTH)));
+        timeStamp.append("-");
+        timeStamp.append(twoDigits(calendar.get(Calendar.DAY_OF_MONTH)));
+        timeStamp.append("-");
+        timeStamp.append(twoDigits(calendar.get(Calendar.HOUR_OF_DAY)));
+        timeStamp.append(twoDigits(calendar.get(Calendar.MINUTE)));
+        timeStamp.append(twoDigits(calendar.get(Calendar.SECOND)));
+        timeStamp.append("-");
+        timeStamp.append(name);
+
+        return timeStamp.toString();
+    }
+
+    private static final String twoDigits(final int value)
+    {
+        final StringBuffer sb = new StringBuffer();
+        if (value < 10) sb.append("0");
+        sb.append(value);
+
+        return sb.toString();
+    }
+
+    public void setMetrics(final EvolutionMetrics metrics)
+    {
+        this.metrics = metrics;
+    }
+
+    // writes a line of text as is, typically the CSV header
+    //
     public void println(final String logLine)
     {
-        writer.println(logLine);
+        enqueue(new Record(logLine, null));
     }
 
-    // mimic the linux system call to implement a hard flush
+    // writes the columns as a single comma separated line
+    //
+    public void log(final long ... columns)
+    {
+        enqueue(new Record(null, columns));
+    }
+
+    // waits for all of the queued records to be written and forced to disk
+    //
+    public void close()
+    {
+        if (closed) return;
+
+        closed = true;
+        enqueue(CLOSE_RECORD);
+
+        try
+        {
+            writerThread.join();
+        }
+        catch (InterruptedException ex)
+        {
+            logger.warn("Interrupted whilst waiting for " + fileName + " to close, ignored...");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final void enqueue(final Record record)
+    {
+        if (closed && (record != CLOSE_RECORD)) throw new IllegalStateException("The evolution logger for " + fileName + " has been closed");
+
+        try
+        {
+            queue.put(record);
+        }
+        catch (InterruptedException ex)
+        {
+            logger.warn("Interrupted whilst queueing a record for " + fileName + ", record dropped");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // the background thread, runs until the close record is dequeued
     //
-    public void fsync()
+    private final void write()
     {
-        writer.flush();
+        final List<Record> batch = new ArrayList<Record>();
+        final StringBuilder line = new StringBuilder();
+        long lastSyncTime = System.currentTimeMillis();
+        int unsyncedRecords = 0;
+        boolean closing = false;
+        while (!closing)
+        {
+            try
+            {
+                // a periodic policy must wake up to sync any outstanding records, even if no more arrive
+                //
+                final Record first;
+                if ((durabilityPolicy.getType() == DurabilityPolicy.Type.Periodic) && (unsyncedRecords > 0))
+                {
+                    final long wait = Math.max(1, durabilityPolicy.getMillis() - (System.currentTimeMillis() - lastSyncTime));
+                    first = queue.poll(wait, TimeUnit.MILLISECONDS);
+                }
+                else
+                {
+                    first = queue.take();
+                }
+
+                if (first != null)
+                {
+                    batch.add(first);
+                    queue.drainTo(batch);
+                }
+            }
+            catch (InterruptedException ex)
+            {
+                logger.warn("Evolution logger for " + fileName + " interrupted, ignored...");
+            }
+
+            for (final Record record : batch)
+            {
+                if (record == CLOSE_RECORD)
+                {
+                    closing = true;
+                    break;
+                }
+
+                writer.println(record.format(line));
+                unsyncedRecords++;
+            }
+
+            batch.clear();
+            writer.flush();
+            if (writer.checkError()) logger.error("Unable to write to " + fileName);
+
+            final long now = System.currentTimeMillis();
+            boolean sync = closing;
+            switch (durabilityPolicy.getType())
+            {
+                case EveryRecord:
+                    sync = true;
+                    break;
+
+                case EveryNRecords:
+                    sync |= (unsyncedRecords >= durabilityPolicy.getRecords());
+                    break;
+
+                case Periodic:
+                    sync |= ((now - lastSyncTime) >= durabilityPolicy.getMillis());
+                    break;
+
+                case OnClose:
+                    break;
+            }
+
+            if (sync && (unsyncedRecords > 0))
+            {
+                final long startTime = System.nanoTime();
+                fsync();
 
+                final EvolutionMetrics fsyncMetrics = metrics;
+                if (fsyncMetrics != null) fsyncMetrics.record(Phase.Fsync, System.nanoTime() - startTime);
+                unsyncedRecords = 0;
+                lastSyncTime = now;
+            }
+        }
+
+        writer.close();
+    }
+
+    // mimic the linux system call to implement a hard flush
+    //
+    private final void fsync()
+    {
         try
         {
             fos.getFD().sync();              // actual data
@@ -62,8 +270,31 @@ public class EvolutionLogger
         }
     }
 
-    public void close()
+    // either a line of text or the columns of a CSV line
+    //
+    private static final class Record
     {
-        writer.close();
+        private final String text;
+        private final long[] columns;
+
+        private Record(final String text, final long[] columns)
+        {
+            this.text = text;
+            this.columns = columns;
+        }
+
+        private final String format(final StringBuilder line)
+        {
+            if (text != null) return text;
+
+            line.setLength(0);
+            for (int i = 0; i < columns.length; i++)
+            {
+                if (i > 0) line.append(',');
+                line.append(columns[i]);
+            }
+
+            return line.toString();
+        }
     }
 }
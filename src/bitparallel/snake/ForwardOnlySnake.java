@@ -14,16 +14,16 @@ public class ForwardOnlySnake extends Snake
 {
     private final double gridDiagonal, normalisedGridDiagonal;
 
-    public ForwardOnlySnake(final NeuralNetwork brain, final int gridWidth, final int gridHeight)
+    public ForwardOnlySnake(final NeuralNetwork brain, final int gridWidth, final int gridHeight, final long seed)
     {
-        super(brain, gridWidth, gridHeight);
+        super(brain, gridWidth, gridHeight, seed);
 
         gridDiagonal = Math.sqrt((gridWidth - 1) * (gridWidth - 1) + (gridHeight - 1) * (gridHeight - 1));
         normalisedGridDiagonal = ROOT_TWO / gridDiagonal;
     }
 
     // forward only sankes use PointWithDeltasXY classes to hold food locations
-    // note, food locations don't use direction deltas, these are ignored during List.contains() operations
+    // note, food locations don't use direction deltas, only the (x, y) coordinates are used when matching the food with the head
     //
     protected final Point createNewFoodLocation(final int x, final int y)
     {
@@ -66,9 +66,7 @@ public class ForwardOnlySnake extends Snake
     //
     private final void addHatchling(final int x, final int y, final int dx, final int dy)
     {
-        final Point point = new PointWithDeltasXY(x, y, dx, dy);
-        hatchling.add(point);
-        segments.add(point);
+        addHatchling(new PointWithDeltasXY(x, y, dx, dy));
     }
 
     // look and see if it clear to move...
@@ -104,39 +102,11 @@ public class ForwardOnlySnake extends Snake
         double forwardFood = 0.0, leftFood = 0.0, rightFood = 0.0;
         if ((dx == 0) && (dy == 1))
         {
-            // moving south, distance to grid boundaries
+            // moving south, distance to the nearer of the grid boundaries and the body
             //
-            forwardDistance = gridHeight - hy - 1.0;
-            leftDistance = gridWidth - hx - 1.0;
-            rightDistance = hx;
-
-            // distance to body, don't include the head (snakes are defined tail first)
-            //
-            for (int i = 0; i < segments.size() - 1; i++)
-            {
-                final int sx = segments.get(i).getX();
-                final int sy = segments.get(i).getY();
-
-                if ((hx == sx) && (sy > hy)) forwardDistance = Math.min(forwardDistance, sy - hy);
-                if (hy == sy)
-                {
-                    if (sx == hx)
-                    {
-                        // no point continuing!
-                        //
-                        leftDistance = rightDistance = 0.0;
-                        break;
-                    }
-                    else if (sx > hx)
-                    {
-                        leftDistance = Math.min(leftDistance, sx - hx);
-                    }
-                    else
-                    {
-                        rightDistance = Math.min(rightDistance, hx - sx);
-                    } 
-                }
-            }
+            forwardDistance = nearer(gridHeight - hy - 1.0, bodyBitboards.south(hx, hy));
+            leftDistance = nearer(gridWidth - hx - 1.0, bodyBitboards.east(hx, hy));
+            rightDistance = nearer(hx, bodyBitboards.west(hx, hy));
 
             // distance to food
             //
@@ -156,37 +126,11 @@ public class ForwardOnlySnake extends Snake
         }
         else if ((dx == 0) && (dy == -1))
         {
-            // moving north, distance to grid boundaries
-            //
-            forwardDistance = hy;
-            leftDistance = hx;
-            rightDistance = gridWidth - hx - 1.0;
-
-            // distance to body
+            // moving north, distance to the nearer of the grid boundaries and the body
             //
-            for (int i = 0; i < segments.size() - 1; i++)
-            {
-                final int sx = segments.get(i).getX();
-                final int sy = segments.get(i).getY();
-
-                if ((hx == sx) && (hy > sy)) forwardDistance = Math.min(forwardDistance, hy - sy);
-                if (hy == sy)
-                {
-                    if (hx == sx)
-                    {
-                        leftDistance = rightDistance = 0.0;
-                        break;
-                    }
-                    else if (hx > sx)
-                    {
-                        leftDistance = Math.min(leftDistance, hx - sx);
-                    }
-                    else
-                    {
-                        rightDistance = Math.min(rightDistance, sx - hx);
-                    }
-                }
-            }
+            forwardDistance = nearer(hy, bodyBitboards.north(hx, hy));
+            leftDistance = nearer(hx, bodyBitboards.west(hx, hy));
+            rightDistance = nearer(gridWidth - hx - 1.0, bodyBitboards.east(hx, hy));
 
             // distance to food
             //
@@ -206,37 +150,11 @@ public class ForwardOnlySnake extends Snake
         }
         else if ((dx == 1) && (dy == 0))
         {
-            // moving east, distance to grid boundaries
-            //
-            forwardDistance = gridWidth - hx - 1.0;
-            leftDistance = hy;
-            rightDistance = gridHeight - hy - 1.0;
-
-            // distance to body
+            // moving east, distance to the nearer of the grid boundaries and the body
             //
-            for (int i = 0; i < segments.size() - 1; i++)
-            {
-                final int sx = segments.get(i).getX();
-                final int sy = segments.get(i).getY();
-
-                if ((hy == sy) && (sx > hx)) forwardDistance = Math.min(forwardDistance, sx - hx);
-                if (hx == sx)
-                {
-                    if (hy == sy)
-                    {
-                        leftDistance = rightDistance = 0.0;
-                        break;
-                    }
-                    else if (hy > sy)
-                    {
-                        leftDistance = Math.min(leftDistance, hy - sy);
-                    }
-                    else
-                    {
-                        rightDistance = Math.min(rightDistance, sy - hy);
-                    }
-                }
-            }
+            forwardDistance = nearer(gridWidth - hx - 1.0, bodyBitboards.east(hx, hy));
+            leftDistance = nearer(hy, bodyBitboards.north(hx, hy));
+            rightDistance = nearer(gridHeight - hy - 1.0, bodyBitboards.south(hx, hy));
 
             // distance to food
             //
@@ -256,37 +174,11 @@ public class ForwardOnlySnake extends Snake
         }
         else if ((dx == -1) && (dy == 0))
         {
-            // moving west, distance to grid boundaries
-            //
-            forwardDistance = hx;
-            leftDistance = gridHeight - hy - 1.0;
-            rightDistance = hy;
-
-            // distance to body
+            // moving west, distance to the nearer of the grid boundaries and the body
             //
-            for (int i = 0; i < segments.size() - 1; i++)
-            {
-                final int sx = segments.get(i).getX();
-                final int sy = segments.get(i).getY();
-
-                if ((hy == sy) && (hx > sx)) forwardDistance = Math.min(forwardDistance, hx - sx);
-                if (hx == sx)
-                {
-                    if (hy == sy)
-                    {
-                        leftDistance = rightDistance = 0.0;
-                        break;
-                    }
-                    else if (sy > hy)
-                    {
-                        leftDistance = Math.min(leftDistance, sy - hy);
-                    }
-                    else
-                    {
-                        rightDistance = Math.min(rightDistance, hy - sy);
-                    }
-                }
-            }
+            forwardDistance = nearer(hx, bodyBitboards.west(hx, hy));
+            leftDistance = nearer(gridHeight - hy - 1.0, bodyBitboards.south(hx, hy));
+            rightDistance = nearer(hy, bodyBitboards.north(hx, hy));
 
             // distance to food
             //
@@ -308,8 +200,16 @@ public class ForwardOnlySnake extends Snake
         return new double[] {forwardDistance, leftDistance, rightDistance, forwardFood, leftFood, rightFood};
     }
 
+    // notes 1, the body distance is a single bitboard scan, see BodyBitboards, so the cost doesn't depend on the snake's length
+    //       2, the scans never include the head's own cell, 0 means that there is no body segment in that direction
+    //
+    private static final double nearer(final double boundaryDistance, final int bodyDistance)
+    {
+        return (bodyDistance > 0) ? Math.min(boundaryDistance, bodyDistance) : boundaryDistance;
+    }
+
     protected final Movement createNewMovement(final double[] movementVector)
     {
-        return new ForwardOnlyMovement(movementVector);
+        return new ForwardOnlyMovement(movementVector, random);
     }
 }
@@ -0,0 +1,190 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+//
+// the food and grid boundary inputs seen by a FullMovementSnake, precomputed for every possible head and food position on a given grid size
+//
+// notes 1, the food inputs depend only on the (head - food) offset and the boundary inputs only on the head cell
+//          so look() replaces the atan2(), cos() and sin() calls and the diagonal tests with a pair of table copies
+//       2, each table entry holds the 8 inputs in look() order, i.e. north, north east, east ... north west
+//       3, the tables are built using exactly the same arithmetic as the original per-move calculation, so the inputs are unchanged
+//       4, immutable, built once per grid size and shared by every snake, see getInstance()
+//
+
+public class FullMovementGeometry
+{
+    public static final int DIRECTIONS = 8;
+
+    private static final ConcurrentHashMap<Long, FullMovementGeometry> instances = new ConcurrentHashMap<Long, FullMovementGeometry>();
+
+    private final int gridWidth, gridHeight;
+    private final int offsetRows;
+    private final double gridDiagonal, normalisedGridDiagonal;
+    private final double[] foodInputs, boundaryInputs;
+
+    private FullMovementGeometry(final int gridWidth, final int gridHeight)
+    {
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+
+        gridDiagonal = Math.sqrt((gridWidth - 1) * (gridWidth - 1) + (gridHeight - 1) * (gridHeight - 1));
+        normalisedGridDiagonal = Snake.ROOT_TWO / gridDiagonal;
+
+        // the food offsets range over [-(gridWidth - 1), gridWidth - 1] x [-(gridHeight - 1), gridHeight - 1]
+        //
+        offsetRows = (2 * gridHeight) - 1;
+        foodInputs = new double[((2 * gridWidth) - 1) * offsetRows * DIRECTIONS];
+        for (int foodDx = 1 - gridWidth; foodDx < gridWidth; foodDx++)
+        {
+            for (int foodDy = 1 - gridHeight; foodDy < gridHeight; foodDy++) computeFoodInputs(gridDiagonal, foodDx, foodDy, foodInputs, foodIndex(foodDx, foodDy));
+        }
+
+        boundaryInputs = new double[gridWidth * gridHeight * DIRECTIONS];
+        for (int hy = 0; hy < gridHeight; hy++)
+        {
+            for (int hx = 0; hx < gridWidth; hx++) computeBoundaryInputs(gridWidth, gridHeight, normalisedGridDiagonal, hx, hy, boundaryInputs, boundaryIndex(hx, hy));
+        }
+    }
+
+    public static final FullMovementGeometry getInstance(final int gridWidth, final int gridHeight)
+    {
+        return instances.computeIfAbsent(((long)gridWidth << 32) | gridHeight, key -> new FullMovementGeometry(gridWidth, gridHeight));
+    }
+
+    public final double getGridDiagonal()
+    {
+        return gridDiagonal;
+    }
+
+    public final double getNormalisedGridDiagonal()
+    {
+        return normalisedGridDiagonal;
+    }
+
+    // copies the 8 food inputs for a head at (hx, hy) and food at (fx, fy) into inputs[offset ...]
+    //
+    public final void copyFoodInputs(final int hx, final int hy, final int fx, final int fy, final double[] inputs, final int offset)
+    {
+        System.arraycopy(foodInputs, foodIndex(hx - fx, hy - fy), inputs, offset, DIRECTIONS);
+    }
+
+    // copies the 8 grid boundary inputs for a head at (hx, hy) into inputs[offset ...]
+    //
+    public final void copyBoundaryInputs(final int hx, final int hy, final double[] inputs, final int offset)
+    {
+        System.arraycopy(boundaryInputs, boundaryIndex(hx, hy), inputs, offset, DIRECTIONS);
+    }
+
+    private final int foodIndex(final int foodDx, final int foodDy)
+    {
+        return (((foodDx + gridWidth - 1) * offsetRows) + (foodDy + gridHeight - 1)) * DIRECTIONS;
+    }
+
+    private final int boundaryIndex(final int hx, final int hy)
+    {
+        return ((hy * gridWidth) + hx) * DIRECTIONS;
+    }
+
+    //
+    // the per-move calculations, used to build the tables
+    //
+
+    // distance and heading to food, where (foodDx, foodDy) is the head position less the food position
+    //
+    static final void computeFoodInputs(final double gridDiagonal, final double foodDx, final double foodDy, final double[] inputs, final int offset)
+    {
+        final double foodDistance = Math.sqrt((foodDx * foodDx) + (foodDy * foodDy)) / gridDiagonal;
+        final double foodBearing = Math.PI + Math.atan2(foodDy, foodDx);
+
+        double foodNorth = 1.0, foodNorthEast = 1.0, foodEast = 1.0, foodSouthEast = 1.0, foodSouth = 1.0, foodSouthWest = 1.0, foodWest = 1.0, foodNorthWest = 1.0;
+        if ((foodBearing >= 0) && (foodBearing < Snake.PI_BY_TWO))
+        {
+            foodNorth = foodDistance * Math.cos(foodBearing);
+            foodEast = foodDistance * Math.sin(foodBearing);
+            foodNorthEast = (foodNorth + foodEast) / Snake.ROOT_TWO;
+        }
+        else if ((foodBearing >= Snake.PI_BY_TWO) && (foodBearing < Math.PI))
+        {
+            foodEast = foodDistance * Math.cos(foodBearing - Snake.PI_BY_TWO);
+            foodSouth = foodDistance * Math.sin(foodBearing - Snake.PI_BY_TWO);
+            foodSouthEast = (foodEast + foodSouth) / Snake.ROOT_TWO;
+        }
+        else if ((foodBearing >= Math.PI) && (foodBearing < Snake.THREE_PI_BY_TWO))
+        {
+            foodSouth = foodDistance * Math.cos(foodBearing - Math.PI);
+            foodWest = foodDistance * Math.sin(foodBearing - Math.PI);
+            foodSouthWest = (foodSouth + foodWest) / Snake.ROOT_TWO;
+        }
+        else
+        {
+            foodWest = foodDistance * Math.cos(foodBearing - Snake.THREE_PI_BY_TWO);
+            foodNorth = foodDistance * Math.sin(foodBearing - Snake.THREE_PI_BY_TWO);
+            foodNorthWest = (foodWest + foodNorth) / Snake.ROOT_TWO;
+        }
+
+        inputs[offset] = foodNorth;
+        inputs[offset + 1] = foodNorthEast;
+        inputs[offset + 2] = foodEast;
+        inputs[offset + 3] = foodSouthEast;
+        inputs[offset + 4] = foodSouth;
+        inputs[offset + 5] = foodSouthWest;
+        inputs[offset + 6] = foodWest;
+        inputs[offset + 7] = foodNorthWest;
+    }
+
+    // distances to the grid boundaries
+    //
+    static final void computeBoundaryInputs(final int gridWidth, final int gridHeight, final double normalisedGridDiagonal, final int hx, final int hy, final double[] inputs, final int offset)
+    {
+        final double headToNorth = hy / gridHeight;
+        final double headToEast = (gridWidth - hx - 1) / gridWidth;
+        final double headToSouth = (gridHeight - hy - 1) / gridHeight;
+        final double headToWest = hx / gridWidth;
+
+        // as the area is bounded by a rectangle, the snake to wall distance calculation will depend on wether or not the snake is above
+        // or below the ramp-up diagonal (south-west up to north-east), best understood with the aid of a diagram...
+        //
+        final double gradient = (double)gridHeight / (double)gridWidth;
+        final boolean belowRampUpDiagonal = (hy + (hx * gradient)) > (gridHeight - 1);
+        double headToNorthEast, headToSouthWest;
+        if (belowRampUpDiagonal)
+        {
+            headToNorthEast = (gridWidth - hx - 1) * normalisedGridDiagonal;
+            headToSouthWest = (gridHeight - hy - 1) * normalisedGridDiagonal;
+        }
+        else
+        {
+            headToNorthEast = hy * normalisedGridDiagonal;
+            headToSouthWest = hx * normalisedGridDiagonal;
+        }
+
+        // for the directions below, the calculation depends on being above or below the ramp-down diagonal (north west down to south east)
+        //
+        final boolean aboveRampDownDiagonal = ((gridHeight - hy - 1) / gradient) + hx > (gridWidth - 1);
+        double headToSouthEast, headToNorthWest;
+        if (aboveRampDownDiagonal)
+        {
+            headToSouthEast = (gridWidth - hx - 1) * normalisedGridDiagonal;
+            headToNorthWest = hy * normalisedGridDiagonal;
+        }
+        else
+        {
+            headToSouthEast = (gridHeight - hy - 1) * normalisedGridDiagonal;
+            headToNorthWest = hx * normalisedGridDiagonal;
+        }
+
+        inputs[offset] = headToNorth;
+        inputs[offset + 1] = headToNorthEast;
+        inputs[offset + 2] = headToEast;
+        inputs[offset + 3] = headToSouthEast;
+        inputs[offset + 4] = headToSouth;
+        inputs[offset + 5] = headToSouthWest;
+        inputs[offset + 6] = headToWest;
+        inputs[offset + 7] = headToNorthWest;
+    }
+}
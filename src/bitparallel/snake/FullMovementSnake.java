@@ -12,14 +12,24 @@ import bitparallel.snake.neural.NeuralNetwork;
 
 public class FullMovementSnake extends Snake
 {
-    private final double gridDiagonal, normalisedGridDiagonal;
+    // the inputs are 8 food, then 8 grid boundary and then 8 body values, each in compass order starting north, see look()
+    //
+    private static final int FOOD_INPUTS = 0;
+    private static final int BOUNDARY_INPUTS = FullMovementGeometry.DIRECTIONS;
+    private static final int BODY_INPUTS = 2 * FullMovementGeometry.DIRECTIONS;
+    private static final int NUMBER_OF_INPUTS = 3 * FullMovementGeometry.DIRECTIONS;
+
+    private final FullMovementGeometry geometry;
+    private final double normalisedGridDiagonal;
 
-    public FullMovementSnake(final NeuralNetwork brain, final int gridWidth, final int gridHeight)
+    public FullMovementSnake(final NeuralNetwork brain, final int gridWidth, final int gridHeight, final long seed)
     {
-        super(brain, gridWidth, gridHeight);
+        super(brain, gridWidth, gridHeight, seed);
 
-        gridDiagonal = Math.sqrt((gridWidth - 1) * (gridWidth - 1) + (gridHeight - 1) * (gridHeight - 1));
-        normalisedGridDiagonal = ROOT_TWO / gridDiagonal;
+        // note, shared by every snake on this grid size
+        //
+        geometry = FullMovementGeometry.getInstance(gridWidth, gridHeight);
+        normalisedGridDiagonal = geometry.getNormalisedGridDiagonal();
     }
 
     // full movement snakes use PointXY classes to hold food locations
@@ -65,9 +75,7 @@ public class FullMovementSnake extends Snake
     //
     private final void addHatchling(final int x, final int y)
     {
-        final Point point = new PointXY(x, y);
-        hatchling.add(point);
-        segments.add(point);
+        addHatchling(new PointXY(x, y));
     }
 
     // calculate the following metrics from the perspective of the snake's head
@@ -85,143 +93,42 @@ public class FullMovementSnake extends Snake
         final int hx = snakeHead.getX();
         final int hy = snakeHead.getY();
 
+        // the food and grid boundary inputs are precomputed, see FullMovementGeometry
         //
-        // distance and heading to food
-        //
-
-        final double foodDx = hx - foodLocation.getX();
-        final double foodDy = hy - foodLocation.getY();
-        final double foodDistance = Math.sqrt((foodDx * foodDx) + (foodDy * foodDy)) / gridDiagonal;
-        final double foodBearing = Math.PI + Math.atan2(foodDy, foodDx);
-
-        double foodNorth = 1.0, foodNorthEast = 1.0, foodEast = 1.0, foodSouthEast = 1.0, foodSouth = 1.0, foodSouthWest = 1.0, foodWest = 1.0, foodNorthWest = 1.0;
-        if ((foodBearing >= 0) && (foodBearing < PI_BY_TWO))
-        {
-            foodNorth = foodDistance * Math.cos(foodBearing);
-            foodEast = foodDistance * Math.sin(foodBearing);
-            foodNorthEast = (foodNorth + foodEast) / ROOT_TWO;
-        }
-        else if ((foodBearing >= PI_BY_TWO) && (foodBearing < Math.PI))
-        {
-            foodEast = foodDistance * Math.cos(foodBearing - PI_BY_TWO);
-            foodSouth = foodDistance * Math.sin(foodBearing - PI_BY_TWO);
-            foodSouthEast = (foodEast + foodSouth) / ROOT_TWO;
-        }
-        else if ((foodBearing >= Math.PI) && (foodBearing < THREE_PI_BY_TWO))
-        {
-            foodSouth = foodDistance * Math.cos(foodBearing - Math.PI);
-            foodWest = foodDistance * Math.sin(foodBearing - Math.PI);
-            foodSouthWest = (foodSouth + foodWest) / ROOT_TWO;
-        }
-        else
-        {
-            foodWest = foodDistance * Math.cos(foodBearing - THREE_PI_BY_TWO);
-            foodNorth = foodDistance * Math.sin(foodBearing - THREE_PI_BY_TWO);
-            foodNorthWest = (foodWest + foodNorth) / ROOT_TWO;
-        }
-
-        //
-        // distances to the grid boundaries
-        //
-
-        final double headToNorth = hy / gridHeight;
-        final double headToEast = (gridWidth - hx - 1) / gridWidth;
-        final double headToSouth = (gridHeight - hy - 1) / gridHeight;
-        final double headToWest = hx / gridWidth;
+        final double[] inputs = new double[NUMBER_OF_INPUTS];
+        geometry.copyFoodInputs(hx, hy, foodLocation.getX(), foodLocation.getY(), inputs, FOOD_INPUTS);
+        geometry.copyBoundaryInputs(hx, hy, inputs, BOUNDARY_INPUTS);
 
-        // as the area is bounded by a rectangle, the snake to wall distance calculation will depend on wether or not the snake is above
-        // or below the ramp-up diagonal (south-west up to north-east), best understood with the aid of a diagram...
         //
-        final double gradient = (double)gridHeight / (double)gridWidth;
-        final boolean belowRampUpDiagonal = (hy + (hx * gradient)) > (gridHeight - 1);
-        double headToNorthEast, headToSouthWest;
-        if (belowRampUpDiagonal)
-        {
-            headToNorthEast = (gridWidth - hx - 1) * normalisedGridDiagonal;
-            headToSouthWest = (gridHeight - hy - 1) * normalisedGridDiagonal;
-        }
-        else
-        {
-            headToNorthEast = hy * normalisedGridDiagonal;
-            headToSouthWest = hx * normalisedGridDiagonal;
-        }
-
-        // for the directions below, the calculation depends on being above or below the ramp-down diagonal (north west down to south east)
+        // distance to this snake's own body
         //
-        final boolean aboveRampDownDiagonal = ((gridHeight - hy - 1) / gradient) + hx > (gridWidth - 1);
-        double headToSouthEast, headToNorthWest;
-        if (aboveRampDownDiagonal)
-        {
-            headToSouthEast = (gridWidth - hx - 1) * normalisedGridDiagonal;
-            headToNorthWest = hy * normalisedGridDiagonal;
-        }
-        else
-        {
-            headToSouthEast = (gridHeight - hy - 1) * normalisedGridDiagonal;
-            headToNorthWest = hx * normalisedGridDiagonal;
-        }
 
+        // notes 1, each direction is a single bitboard scan, see BodyBitboards, so the cost doesn't depend on the snake's length
+        //       2, the inputs match those of a scan over every segment, including the head, using the following comparisons,
+        //            west / east, 0 if there is a segment in that direction along the head's row (an integer division by the grid width), otherwise 1
+        //            north, 0 if there is a segment in the head's column with sy > hy, otherwise 1
+        //            south, 0 if there is a segment in the head's column with sy <= hy and sy < hx, the head itself qualifies when hy < hx
+        //            diagonals, the distance to the nearest segment, normalised by the grid diagonal
         //
-        // distance to this snake's own body
-        //
+        inputs[BODY_INPUTS] = (bodyBitboards.south(hx, hy) > 0) ? 0.0 : 1.0;
+        inputs[BODY_INPUTS + 1] = diagonalBodyDistance(bodyBitboards.northEast(hx, hy));
+        inputs[BODY_INPUTS + 2] = (bodyBitboards.east(hx, hy) > 0) ? 0.0 : 1.0;
+        inputs[BODY_INPUTS + 3] = diagonalBodyDistance(bodyBitboards.southEast(hx, hy));
+        inputs[BODY_INPUTS + 4] = ((hy < hx) || (bodyBitboards.north(hx, hx) > 0)) ? 0.0 : 1.0;
+        inputs[BODY_INPUTS + 5] = diagonalBodyDistance(bodyBitboards.southWest(hx, hy));
+        inputs[BODY_INPUTS + 6] = (bodyBitboards.west(hx, hy) > 0) ? 0.0 : 1.0;
+        inputs[BODY_INPUTS + 7] = diagonalBodyDistance(bodyBitboards.northWest(hx, hy));
+
+        return inputs;
+    }
 
-        double bodyNorth = 1.0, bodyNorthEast = 1.0, bodyEast = 1.0, bodySouthEast = 1.0, bodySouth = 1.0, bodySouthWest = 1.0, bodyWest = 1.0, bodyNorthWest = 1.0;
-        for (Point segment : segments)
-        {
-            final int sx = segment.getX(), sy = segment.getY();
-            if (sx < hx)
-            {
-                final int dx = hx - sx;
-                if (sy == hy)
-                {
-                    bodyWest = Math.min(bodyWest, dx / gridWidth);
-                }
-                else if (sy == (hy - dx))
-                {
-                    bodyNorthWest = Math.min(bodyNorthWest, dx * normalisedGridDiagonal);
-                }
-                else if (sy == (hy + dx))
-                {
-                    bodySouthWest = Math.min(bodySouthWest, dx * normalisedGridDiagonal);
-                }
-            }
-            else if (sx > hx)
-            {
-                final int dx = sx - hx;
-                if (sy == hy)
-                {
-                    bodyEast = Math.min(bodyEast, dx / gridWidth);
-                }
-                else if (sy == (hy - dx))
-                {
-                    bodyNorthEast = Math.min(bodyNorthEast, dx * normalisedGridDiagonal);
-                }
-                else if (sy == (hy + dx))
-                {
-                    bodySouthEast = Math.min(bodySouthEast, dx * normalisedGridDiagonal);
-                }
-            }
-            else
-            {
-                final int dy = Math.abs(sy - hy);
-                if (sy > hy)
-                {
-                    bodyNorth = Math.min(bodyNorth, dy / gridHeight);
-                }
-                else if (sy < hx)
-                {
-                    bodySouth = Math.min(bodySouth, dy / gridHeight);
-                }
-            }
-        }
-
-        return new double[] {foodNorth, foodNorthEast, foodEast, foodSouthEast, foodSouth, foodSouthWest, foodWest, foodNorthWest,
-                             headToNorth, headToNorthEast, headToEast, headToSouthEast, headToSouth, headToSouthWest, headToWest, headToNorthWest,
-                             bodyNorth, bodyNorthEast, bodyEast, bodySouthEast, bodySouth, bodySouthWest, bodyWest, bodyNorthWest};
+    private final double diagonalBodyDistance(final int distance)
+    {
+        return (distance > 0) ? Math.min(1.0, distance * normalisedGridDiagonal) : 1.0;
     }
 
     protected final Movement createNewMovement(final double[] movementVector)
     {
-        return new FullMovement(movementVector);
+        return new FullMovement(movementVector, random);
     }
 }
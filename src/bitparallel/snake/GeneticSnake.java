@@ -4,9 +4,7 @@
 
 package bitparallel.snake;
 
-import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.List;
+import java.io.IOException;
 
 import javafx.application.Application;
 import javafx.stage.Stage;
@@ -14,6 +12,9 @@ import javafx.stage.Stage;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
+import bitparallel.snake.metrics.EvolutionMetrics;
+import bitparallel.snake.metrics.Phase;
+import bitparallel.snake.ui.RendererType;
 import bitparallel.snake.ui.SnakeViewer;
 
 public class GeneticSnake extends Application
@@ -23,6 +24,9 @@ public class GeneticSnake extends Application
     private static final int MAX_GENERATIONS = 2000;
     private static final int POPULATION_SIZE = 10000;
     private static final double MUTATION_RATE = 0.4; //0.05;
+    private static final int EVALUATION_THREADS = Runtime.getRuntime().availableProcessors();
+    private static final EvaluationMode EVALUATION_MODE = EvaluationMode.PerSnake;
+    private static final int CHECKPOINT_INTERVAL = 50;
 
     private static final Logger logger = LogManager.getLogger(GeneticSnake.class);
 
@@ -34,34 +38,90 @@ public class GeneticSnake extends Application
 
         // create the CSV evolution progress file
         //
-        final Calendar calendar = Calendar.getInstance();
-        final StringBuffer timeStamp = new StringBuffer();
-        timeStamp.append(calendar.get(Calendar.YEAR));
-        timeStamp.append("-");
-        timeStamp.append(twoDigits(1 + calendar.get(Calendar.MONTH)));
-        timeStamp.append("-");
-        timeStamp.append(twoDigits(calendar.get(Calendar.DAY_OF_MONTH)));
-        timeStamp.append("-");
-        timeStamp.append(twoDigits(calendar.get(Calendar.HOUR_OF_DAY)));
-        timeStamp.append(twoDigits(calendar.get(Calendar.MINUTE)));
-        timeStamp.append(twoDigits(calendar.get(Calendar.SECOND)));
-        timeStamp.append("-");
-
-        final EvolutionLogger csvEvolutionProgressLogger = new EvolutionLogger(timeStamp.toString() + "snake-evolution-progress.csv");
+        final EvolutionLogger csvEvolutionProgressLogger = new EvolutionLogger(EvolutionLogger.timeStampedFileName("snake-evolution-progress.csv"));
         csvEvolutionProgressLogger.println("Generation,Fitness,Length,Moves");
 
-        final SnakeViewer ui = new SnakeViewer(primaryStage, AI_GRID_WIDTH, AI_GRID_HEIGHT);
+        // the phase timings and throughput, published over JMX, see EvolutionMetrics
+        //
+        final EvolutionMetrics metrics = new EvolutionMetrics("gui");
+        metrics.register();
+        csvEvolutionProgressLogger.setMetrics(metrics);
+
+        // optionally resume from a checkpoint, i.e. --resume=<file>
+        //
+        final String resumeFileName = getParameters().getNamed().get("resume");
+        final String checkpointFileName = EvolutionLogger.timeStampedFileName("snake-population.checkpoint");
+
+        // optionally select the renderer and the initial animation speed, i.e. --renderer=Nodes|Canvas and --speed=<multiple of 1x>
+        // note, a bad value is logged and replaced by the default, i.e. the canvas renderer at 1x
+        //
+        final String rendererName = getParameters().getNamed().get("renderer");
+        RendererType rendererType = RendererType.Canvas;
+        if (rendererName != null)
+        {
+            try
+            {
+                rendererType = RendererType.valueOf(rendererName);
+            }
+            catch (IllegalArgumentException ex)
+            {
+                logger.error("Unknown renderer " + rendererName + ", expected Nodes or Canvas, using the " + rendererType + " renderer");
+            }
+        }
+
+        final SnakeViewer ui = new SnakeViewer(primaryStage, AI_GRID_WIDTH, AI_GRID_HEIGHT, rendererType);
+        final String speed = getParameters().getNamed().get("speed");
+        if (speed != null)
+        {
+            try
+            {
+                ui.setSpeed(Double.parseDouble(speed));
+            }
+            catch (IllegalArgumentException ex)
+            {
+                logger.error("Unable to set the animation speed to " + speed + ", playing at 1x", ex);
+            }
+        }
+
         final Runnable task = () -> {
             final SnakeFactory snakeFactory = new SnakeFactory(SnakeSpecies.FullMovement, AI_GRID_WIDTH, AI_GRID_HEIGHT);
             //final SnakeFactory snakeFactory = new SnakeFactory(SnakeSpecies.ForwardOnly, AI_GRID_WIDTH, AI_GRID_HEIGHT);
-            final SnakePit snakePit = new SnakePit(snakeFactory, POPULATION_SIZE, MUTATION_RATE, csvEvolutionProgressLogger);
+            final long seed = System.currentTimeMillis();
+            final SnakePit snakePit = new SnakePit(snakeFactory, POPULATION_SIZE, MUTATION_RATE, seed, EVALUATION_THREADS, csvEvolutionProgressLogger);
+            snakePit.setEvaluationMode(EVALUATION_MODE);
+            snakePit.setMetrics(metrics, false);
+            snakePit.enableCheckpoints(checkpointFileName, CHECKPOINT_INTERVAL);
+            if (resumeFileName != null)
+            {
+                try
+                {
+                    snakePit.resume(resumeFileName);
+                }
+                catch (IOException ex)
+                {
+                    logger.error("Unable to resume from " + resumeFileName + ", starting a new evolution", ex);
+                }
+                catch (IllegalArgumentException ex)
+                {
+                    // i.e. the checkpoint doesn't match this snake pit's species, grid or topology, see PopulationCheckpoint.verify()
+                    //
+                    logger.error("Unable to resume from " + resumeFileName + ", incompatible checkpoint, starting a new evolution", ex);
+                }
+            }
+
             while (snakePit.getGeneration() < MAX_GENERATIONS)
             {
                 snakePit.spawn();
                 snakePit.survive();
+
+                // note, posts the champion to the viewer's mailbox, i.e. the evolution never waits for the animation
+                //
+                final long animationStartTime = System.nanoTime();
                 ui.animate(snakePit.getAnimationSnake());
+                metrics.record(Phase.Animate, System.nanoTime() - animationStartTime);
             }
 
+            snakePit.shutdown();
             csvEvolutionProgressLogger.close();
             logger.info("Finished, all snake evolution has come to an end...");
         };
@@ -75,13 +135,4 @@ public class GeneticSnake extends Application
     public void stop()
     {
     }
-
-    private final String twoDigits(final int value)
-    {
-        final StringBuffer sb = new StringBuffer();
-        if (value < 10) sb.append("0");
-        sb.append(value);
-
-        return sb.toString();
-    }
 }
@@ -0,0 +1,278 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+import bitparallel.snake.island.Island;
+import bitparallel.snake.island.IslandNetwork;
+import bitparallel.snake.island.MigrationTopology;
+import bitparallel.snake.metrics.EvolutionMetrics;
+import bitparallel.snake.neural.NetworkPrecision;
+
+//
+// runs the evolution without a UI, i.e. JavaFX is never loaded, intended for headless servers
+//
+// usage: java -cp genetic-snake.jar bitparallel.snake.HeadlessSnake [--config=<file>] [--key=value ...]
+//
+// keys: species, networkPrecision, compiledNetworks, gridWidth, gridHeight, maxGenerations, populationSize, mutationRate, evaluationThreads, evaluationMode, seed, csvFile,
+//       episodes (the number of common episodes averaged to give each snake's fitness), racing, recordingMode, durability (see DurabilityPolicy.parse()), checkpointFile, checkpointInterval and resume (the checkpoint file to resume from)
+//       metrics (publishes the phase timings and throughput over JMX, see EvolutionMetrics) and metricsCsv (also appends them to the CSV)
+//
+// island model keys: islands (the number of islands within this JVM, each on its own loopback port from islandPort) or islandIndex and
+//                    islandPeers (host:port,... of every island, one island per JVM), migrationInterval, migrationSize and migrationTopology
+//
+
+public class HeadlessSnake
+{
+    private static final SnakeSpecies DEFAULT_SPECIES = SnakeSpecies.FullMovement;
+    private static final NetworkPrecision DEFAULT_NETWORK_PRECISION = NetworkPrecision.Double;
+    private static final boolean DEFAULT_COMPILED_NETWORKS = false;
+    private static final int DEFAULT_GRID_WIDTH = 40;
+    private static final int DEFAULT_GRID_HEIGHT = 40;
+    private static final int DEFAULT_MAX_GENERATIONS = 2000;
+    private static final int DEFAULT_POPULATION_SIZE = 10000;
+    private static final double DEFAULT_MUTATION_RATE = 0.4;
+    private static final EvaluationMode DEFAULT_EVALUATION_MODE = EvaluationMode.PerSnake;
+    private static final RecordingMode DEFAULT_RECORDING_MODE = RecordingMode.ChampionReplay;
+    private static final int DEFAULT_EPISODES = 1;
+    private static final boolean DEFAULT_RACING = false;
+    private static final boolean DEFAULT_METRICS = true;
+    private static final boolean DEFAULT_METRICS_CSV = false;
+    private static final int DEFAULT_CHECKPOINT_INTERVAL = 50;
+    private static final String DEFAULT_DURABILITY = "record";
+    private static final String LOOPBACK_HOST = "127.0.0.1";
+    private static final int DEFAULT_ISLAND_PORT = 47000;
+    private static final int DEFAULT_MIGRATION_INTERVAL = 10;
+    private static final int DEFAULT_MIGRATION_SIZE = 5;
+    private static final MigrationTopology DEFAULT_MIGRATION_TOPOLOGY = MigrationTopology.Ring;
+    private static final String RESUME_USAGE = "--resume=<checkpoint file>";
+
+    private static final Logger logger = LogManager.getLogger(HeadlessSnake.class);
+
+    public static void main(final String[] args) throws IOException, InterruptedException
+    {
+        logger.info("Genetic Snake (Headless)");
+        logger.info("(c) Bit Parallel Ltd, November 2020");
+
+        final RunConfiguration configuration = new RunConfiguration(args);
+        logger.info("Configuration: " + configuration);
+
+        // note, checked before any island is started, i.e. a bare --resume would otherwise be read as a checkpoint file named "true"
+        //
+        if (configuration.contains("resume")) configuration.getRequiredString("resume", RESUME_USAGE);
+
+        // note, read once, as every island derives its seed from it
+        //
+        final long seed = configuration.getLong("seed", System.currentTimeMillis());
+
+        // an island per JVM, i.e. this island's index into the list of all of the islands' addresses
+        //
+        if (configuration.contains("islandPeers"))
+        {
+            final List<InetSocketAddress> islandAddresses = parseIslandAddresses(configuration.getString("islandPeers", null));
+            final int islandIndex = configuration.getInt("islandIndex", -1);
+            evolve(configuration, seed, islandIndex, islandAddresses, 1);
+            return;
+        }
+
+        final int islands = configuration.getInt("islands", 1);
+        if (islands < 1) throw new IllegalArgumentException("The number of islands must be at least 1, value: " + islands);
+        if (islands == 1)
+        {
+            evolve(configuration, seed, 0, null, 1);
+            return;
+        }
+
+        // every island within this JVM, each on its own thread and connected via the loopback interface
+        //
+        final int islandPort = configuration.getInt("islandPort", DEFAULT_ISLAND_PORT);
+        final List<InetSocketAddress> islandAddresses = new ArrayList<InetSocketAddress>();
+        for (int i = 0; i < islands; i++) islandAddresses.add(new InetSocketAddress(LOOPBACK_HOST, islandPort + i));
+
+        final List<Thread> islandThreads = new ArrayList<Thread>();
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+        for (int i = 0; i < islands; i++)
+        {
+            final int islandIndex = i;
+            final Thread islandThread = new Thread(() ->
+            {
+                try
+                {
+                    evolve(configuration, seed, islandIndex, islandAddresses, islands);
+                }
+                catch (Throwable ex)
+                {
+                    logger.error("Island #" + islandIndex + " failed", ex);
+                    failures.add(ex);
+                }
+            }, "island-" + islandIndex);
+
+            islandThreads.add(islandThread);
+            islandThread.start();
+        }
+
+        for (final Thread islandThread : islandThreads) islandThread.join();
+        if (!failures.isEmpty()) throw new IllegalStateException("Unable to complete the evolution, " + failures.size() + " island(s) failed");
+    }
+
+    // runs a single snake pit, or a single island should the island addresses be supplied
+    //
+    // notes 1, each island uses seed + islandIndex and suffixes its CSV and checkpoint file names with its index, see islandFileName()
+    //       2, by default the cores are shared equally between the islands running within this JVM
+    //
+    private static final void evolve(final RunConfiguration configuration, final long seed, final int islandIndex, final List<InetSocketAddress> islandAddresses, final int localIslands) throws IOException
+    {
+        final boolean isIsland = (islandAddresses != null);
+
+        final SnakeSpecies species = configuration.getEnum("species", SnakeSpecies.class, DEFAULT_SPECIES);
+        final NetworkPrecision networkPrecision = configuration.getEnum("networkPrecision", NetworkPrecision.class, DEFAULT_NETWORK_PRECISION);
+        final boolean compiledNetworks = configuration.getBoolean("compiledNetworks", DEFAULT_COMPILED_NETWORKS);
+        final int gridWidth = configuration.getInt("gridWidth", DEFAULT_GRID_WIDTH);
+        final int gridHeight = configuration.getInt("gridHeight", DEFAULT_GRID_HEIGHT);
+        final int maxGenerations = configuration.getInt("maxGenerations", DEFAULT_MAX_GENERATIONS);
+        final int populationSize = configuration.getInt("populationSize", DEFAULT_POPULATION_SIZE);
+        final double mutationRate = configuration.getDouble("mutationRate", DEFAULT_MUTATION_RATE);
+        final int evaluationThreads = configuration.getInt("evaluationThreads", Math.max(1, Runtime.getRuntime().availableProcessors() / localIslands));
+        final EvaluationMode evaluationMode = configuration.getEnum("evaluationMode", EvaluationMode.class, DEFAULT_EVALUATION_MODE);
+        final RecordingMode recordingMode = configuration.getEnum("recordingMode", RecordingMode.class, DEFAULT_RECORDING_MODE);
+        final int episodes = configuration.getInt("episodes", DEFAULT_EPISODES);
+        final boolean racing = configuration.getBoolean("racing", DEFAULT_RACING);
+        final boolean metricsEnabled = configuration.getBoolean("metrics", DEFAULT_METRICS);
+        final boolean metricsCsv = metricsEnabled && configuration.getBoolean("metricsCsv", DEFAULT_METRICS_CSV);
+        final String csvFile = configuration.getString("csvFile", EvolutionLogger.timeStampedFileName("snake-evolution-progress.csv"));
+        final DurabilityPolicy durability = DurabilityPolicy.parse(configuration.getString("durability", DEFAULT_DURABILITY));
+        final String checkpointFile = configuration.getString("checkpointFile", EvolutionLogger.timeStampedFileName("snake-population.checkpoint"));
+        final int checkpointInterval = configuration.getInt("checkpointInterval", DEFAULT_CHECKPOINT_INTERVAL);
+
+        final EvolutionLogger csvEvolutionProgressLogger = new EvolutionLogger(isIsland ? islandFileName(csvFile, islandIndex) : csvFile, durability);
+        csvEvolutionProgressLogger.println("Generation,Fitness,Length,Moves" + (metricsCsv ? ("," + EvolutionMetrics.CSV_HEADER) : ""));
+
+        final EvolutionMetrics metrics = metricsEnabled ? new EvolutionMetrics(isIsland ? ("island" + islandIndex) : "headless") : null;
+        if (metricsEnabled)
+        {
+            metrics.register();
+            csvEvolutionProgressLogger.setMetrics(metrics);
+        }
+
+        final SnakeFactory snakeFactory = new SnakeFactory(species, gridWidth, gridHeight, networkPrecision, compiledNetworks);
+        final SnakePit snakePit = new SnakePit(snakeFactory, populationSize, mutationRate, seed + islandIndex, evaluationThreads, csvEvolutionProgressLogger);
+        snakePit.setEvaluationMode(evaluationMode);
+        snakePit.setRecordingMode(recordingMode);
+        snakePit.setEpisodes(episodes);
+        snakePit.setRacing(racing);
+        snakePit.setMetrics(metrics, metricsCsv);
+        if (checkpointInterval > 0) snakePit.enableCheckpoints(isIsland ? islandFileName(checkpointFile, islandIndex) : checkpointFile, checkpointInterval);
+        if (configuration.contains("resume"))
+        {
+            final String resumeFile = configuration.getRequiredString("resume", RESUME_USAGE);
+            snakePit.resume(isIsland ? islandFileName(resumeFile, islandIndex) : resumeFile);
+        }
+
+        Island island = null;
+        if (isIsland)
+        {
+            final int migrationInterval = configuration.getInt("migrationInterval", DEFAULT_MIGRATION_INTERVAL);
+            final int migrationSize = configuration.getInt("migrationSize", DEFAULT_MIGRATION_SIZE);
+            final MigrationTopology migrationTopology = configuration.getEnum("migrationTopology", MigrationTopology.class, DEFAULT_MIGRATION_TOPOLOGY);
+
+            final IslandNetwork network = new IslandNetwork(islandIndex, islandAddresses, migrationTopology);
+            network.connect();
+            island = new Island(islandIndex, snakePit, network, migrationInterval, migrationSize);
+        }
+
+        final String prefix = isIsland ? ("Island #" + islandIndex + " ") : "";
+        final int firstGeneration = snakePit.getGeneration();
+        final long startTime = System.nanoTime();
+        while (snakePit.getGeneration() < maxGenerations)
+        {
+            final long generationStartTime = System.nanoTime();
+            if (isIsland)
+            {
+                island.evolve();
+            }
+            else
+            {
+                snakePit.spawn();
+                snakePit.survive();
+            }
+
+            final double generationSeconds = (System.nanoTime() - generationStartTime) / 1.0e9;
+            logger.info(throughput(prefix + "Generation #" + snakePit.getGeneration(), 1, populationSize, generationSeconds));
+        }
+
+        if (isIsland)
+        {
+            island.shutdown();
+        }
+        else
+        {
+            snakePit.shutdown();
+        }
+
+        csvEvolutionProgressLogger.close();
+        if (metricsEnabled) metrics.unregister();
+
+        final int generations = snakePit.getGeneration() - firstGeneration;
+        final double totalSeconds = (System.nanoTime() - startTime) / 1.0e9;
+        logger.info(throughput(prefix + "Finished, " + generations + " generations", generations, (long)generations * populationSize, totalSeconds));
+    }
+
+    // host:port,host:port... in island index order
+    //
+    private static final List<InetSocketAddress> parseIslandAddresses(final String islandPeers)
+    {
+        final List<InetSocketAddress> islandAddresses = new ArrayList<InetSocketAddress>();
+        for (final String peer : islandPeers.split(","))
+        {
+            final int separator = peer.lastIndexOf(':');
+            if (separator < 1) throw new IllegalArgumentException("Unable to parse the island address, requires host:port, value: " + peer);
+
+            try
+            {
+                islandAddresses.add(new InetSocketAddress(peer.substring(0, separator).trim(), Integer.parseInt(peer.substring(separator + 1).trim())));
+            }
+            catch (NumberFormatException ex)
+            {
+                throw new IllegalArgumentException("Unable to parse the island port, value: " + peer);
+            }
+        }
+
+        return islandAddresses;
+    }
+
+    // inserts the island index before the file extension, e.g. evolution.csv becomes evolution-island2.csv
+    //
+    private static final String islandFileName(final String fileName, final int islandIndex)
+    {
+        final int extension = fileName.lastIndexOf('.');
+        final int directory = Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf(File.separatorChar));
+        final String suffix = "-island" + islandIndex;
+
+        return (extension > directory) ? (fileName.substring(0, extension) + suffix + fileName.substring(extension)) : (fileName + suffix);
+    }
+
+    private static final String throughput(final String prefix, final int generations, final long snakes, final double seconds)
+    {
+        final StringBuffer sb = new StringBuffer();
+        sb.append(prefix);
+        sb.append(", time: ");
+        sb.append(String.format("%.3f", seconds));
+        sb.append("s, generations/sec: ");
+        sb.append(String.format("%.3f", generations / seconds));
+        sb.append(", snakes/sec: ");
+        sb.append(String.format("%.0f", snakes / seconds));
+
+        return sb.toString();
+    }
+}
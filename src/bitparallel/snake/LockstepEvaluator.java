@@ -0,0 +1,83 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake;
+
+import java.util.List;
+
+import bitparallel.snake.neural.NetworkBatch;
+
+//
+// advances a slice of the population by one move at a time, in lockstep
+//
+// notes 1, each move, the vision vectors of the live snakes are gathered into a NetworkBatch and iterated together
+//       2, snakes that die are compacted out of the batch, the evaluation finishes when no live snakes remain
+//       3, each snake still uses its own random source and the batch performs the same arithmetic as NeuralNetwork.think()
+//          so the resulting fitness values are identical to those produced by Snake.survive()
+//       4, an evaluator is reusable, each survive() starts from an empty batch, i.e. SnakePit keeps one per evaluating thread
+//
+
+public class LockstepEvaluator
+{
+    private final Snake[] live;
+    private final NetworkBatch batch;
+    private final double[] movementVector;
+
+    public LockstepEvaluator(final Snake prototype, final int capacity)
+    {
+        live = new Snake[capacity];
+        batch = new NetworkBatch(prototype.getBrain(), capacity);
+        movementVector = new double[batch.getNumberOfOutputs()];
+    }
+
+    public final void survive(final List<Snake> snakes, final int from, final int to)
+    {
+        if ((to - from) > live.length) throw new IllegalArgumentException("Too many snakes for this evaluator, supplied: " + (to - from) + ", capacity: " + live.length);
+
+        batch.clear();
+        int liveCount = 0;
+        for (int i = from; i < to; i++)
+        {
+            final Snake snake = snakes.get(i);
+            snake.beginSurvival();
+            live[liveCount++] = snake;
+            batch.add(snake.getBrain());
+        }
+
+        final int numberOfInputs = batch.getNumberOfInputs();
+        final int numberOfOutputs = batch.getNumberOfOutputs();
+        final double[] inputs = batch.getInputs();
+        final double[] outputs = batch.getOutputs();
+        while (liveCount > 0)
+        {
+            // gather the vision vectors
+            //
+            for (int slot = 0; slot < liveCount; slot++) System.arraycopy(live[slot].observe(), 0, inputs, slot * numberOfInputs, numberOfInputs);
+
+            batch.think();
+
+            // scatter the movement vectors and compact out any snakes that didn't survive the move
+            // note, a snake that dies with common episodes still to play stays in the batch, see Snake.beginNextEpisode()
+            //
+            int survivors = 0;
+            for (int slot = 0; slot < liveCount; slot++)
+            {
+                final Snake snake = live[slot];
+                System.arraycopy(outputs, slot * numberOfOutputs, movementVector, 0, numberOfOutputs);
+                snake.move(movementVector);
+
+                if (snake.isAlive() || snake.beginNextEpisode())
+                {
+                    live[survivors] = snake;
+                    batch.move(slot, survivors);
+                    survivors++;
+                }
+            }
+
+            for (int slot = survivors; slot < liveCount; slot++) live[slot] = null;
+            batch.truncate(survivors);
+            liveCount = survivors;
+        }
+    }
+}
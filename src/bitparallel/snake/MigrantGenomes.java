@@ -0,0 +1,128 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+//
+// the genomes of an island's fittest snakes, as sent to the other islands, see SnakePit.getEmigrants() and immigrate()
+//
+// wire format, all values big endian (i.e. DataOutputStream),
+//
+//   int     source island
+//   int     generation
+//   int     layer sizes count, followed by the layer sizes, see NetworkState
+//   int     genome count
+//   [long fitness, double[dimension] genome] x genome count, ranked fittest first
+//
+
+public class MigrantGenomes
+{
+    private final int sourceIsland;
+    private final int generation;
+    private final int[] layerSizes;
+    private final long[] fitness;
+    private final double[][] genomes;
+
+    public MigrantGenomes(final int sourceIsland, final int generation, final int[] layerSizes, final long[] fitness, final double[][] genomes)
+    {
+        if (fitness.length != genomes.length) throw new IllegalArgumentException("The fitness and genome counts differ, fitness: " + fitness.length + ", genomes: " + genomes.length);
+
+        this.sourceIsland = sourceIsland;
+        this.generation = generation;
+        this.layerSizes = layerSizes;
+        this.fitness = fitness;
+        this.genomes = genomes;
+    }
+
+    public final int getSourceIsland()
+    {
+        return sourceIsland;
+    }
+
+    public final int getGeneration()
+    {
+        return generation;
+    }
+
+    public final int[] getLayerSizes()
+    {
+        return layerSizes;
+    }
+
+    public final int getCount()
+    {
+        return genomes.length;
+    }
+
+    public final long getFitness(final int rank)
+    {
+        return fitness[rank];
+    }
+
+    public final double[] getGenome(final int rank)
+    {
+        return genomes[rank];
+    }
+
+    // note, the caller is responsible for flushing the stream
+    //
+    public final void write(final DataOutputStream out) throws IOException
+    {
+        out.writeInt(sourceIsland);
+        out.writeInt(generation);
+        out.writeInt(layerSizes.length);
+        for (final int layerSize : layerSizes) out.writeInt(layerSize);
+
+        out.writeInt(genomes.length);
+        for (int rank = 0; rank < genomes.length; rank++)
+        {
+            out.writeLong(fitness[rank]);
+            for (final double gene : genomes[rank]) out.writeDouble(gene);
+        }
+    }
+
+    public static final MigrantGenomes read(final DataInputStream in) throws IOException
+    {
+        final int sourceIsland = in.readInt();
+        final int generation = in.readInt();
+
+        final int[] layerSizes = new int[in.readInt()];
+        for (int i = 0; i < layerSizes.length; i++) layerSizes[i] = in.readInt();
+
+        int dimension = 0;
+        for (int layer = 1; layer < layerSizes.length; layer++) dimension += (layerSizes[layer] * (layerSizes[layer - 1] + 1));
+
+        final int count = in.readInt();
+        final long[] fitness = new long[count];
+        final double[][] genomes = new double[count][dimension];
+        for (int rank = 0; rank < count; rank++)
+        {
+            fitness[rank] = in.readLong();
+            for (int i = 0; i < dimension; i++) genomes[rank][i] = in.readDouble();
+        }
+
+        return new MigrantGenomes(sourceIsland, generation, layerSizes, fitness, genomes);
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuffer sb = new StringBuffer();
+        sb.append("Island #");
+        sb.append(sourceIsland);
+        sb.append(", generation #");
+        sb.append(generation);
+        sb.append(", genomes: ");
+        sb.append(genomes.length);
+        sb.append(", layers: ");
+        sb.append(Arrays.toString(layerSizes));
+
+        return sb.toString();
+    }
+}
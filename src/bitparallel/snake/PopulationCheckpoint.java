@@ -0,0 +1,255 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+//
+// a compact binary snapshot of a SnakePit, taken once a generation has been evaluated and ranked
+//
+// file layout, all values big endian,
+//
+//   int     magic, "SNKC"
+//   int     version
+//   short   species name length, followed by the species name bytes (UTF-8)
+//   int     grid width
+//   int     grid height
+//   int     layer sizes count, followed by the layer sizes, see NetworkState
+//   int     generation
+//   long    high score
+//   int     random state length, followed by the master random source state longs
+//   int     population size
+//   [long fitness, double[dimension] genome] x population size, ranked fittest first
+//
+// notes 1, written through a file channel to a temporary file which is forced to disk and then atomically renamed over the target
+//          i.e. a crash during a write always leaves the previous checkpoint intact
+//       2, read back via a memory mapped buffer, the genomes are bulk copied out of the mapping
+//
+
+public class PopulationCheckpoint
+{
+    private static final int MAGIC = 0x534e4b43;
+    private static final int VERSION = 1;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private final SnakeSpecies species;
+    private final int gridWidth, gridHeight;
+    private final int[] layerSizes;
+    private final int generation;
+    private final long highScore;
+    private final long[] randomState;
+    private final long[] fitness;
+    private final double[][] genomes;
+
+    public PopulationCheckpoint(final SnakeSpecies species, final int gridWidth, final int gridHeight, final int[] layerSizes, final int generation, final long highScore, final long[] randomState, final long[] fitness, final double[][] genomes)
+    {
+        if (fitness.length != genomes.length) throw new IllegalArgumentException("The fitness and genome counts differ, fitness: " + fitness.length + ", genomes: " + genomes.length);
+
+        this.species = species;
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+        this.layerSizes = layerSizes;
+        this.generation = generation;
+        this.highScore = highScore;
+        this.randomState = randomState;
+        this.fitness = fitness;
+        this.genomes = genomes;
+    }
+
+    public final SnakeSpecies getSpecies()
+    {
+        return species;
+    }
+
+    public final int getGridWidth()
+    {
+        return gridWidth;
+    }
+
+    public final int getGridHeight()
+    {
+        return gridHeight;
+    }
+
+    public final int[] getLayerSizes()
+    {
+        return layerSizes;
+    }
+
+    public final int getGeneration()
+    {
+        return generation;
+    }
+
+    public final long getHighScore()
+    {
+        return highScore;
+    }
+
+    public final long[] getRandomState()
+    {
+        return randomState;
+    }
+
+    public final int getPopulationSize()
+    {
+        return genomes.length;
+    }
+
+    public final long getFitness(final int rank)
+    {
+        return fitness[rank];
+    }
+
+    public final double[] getGenome(final int rank)
+    {
+        return genomes[rank];
+    }
+
+    public final void write(final Path path) throws IOException
+    {
+        final Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (final FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+            final byte[] speciesName = species.name().getBytes(StandardCharsets.UTF_8);
+
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putShort((short)speciesName.length);
+            buffer.put(speciesName);
+            buffer.putInt(gridWidth);
+            buffer.putInt(gridHeight);
+            buffer.putInt(layerSizes.length);
+            for (final int layerSize : layerSizes) buffer.putInt(layerSize);
+            buffer.putInt(generation);
+            buffer.putLong(highScore);
+            buffer.putInt(randomState.length);
+            for (final long state : randomState) buffer.putLong(state);
+            buffer.putInt(genomes.length);
+
+            for (int rank = 0; rank < genomes.length; rank++)
+            {
+                ensureCapacity(channel, buffer, Long.BYTES);
+                buffer.putLong(fitness[rank]);
+
+                // bulk copy the genome, in buffer sized chunks
+                //
+                final double[] genome = genomes[rank];
+                int written = 0;
+                while (written < genome.length)
+                {
+                    ensureCapacity(channel, buffer, Double.BYTES);
+                    final int count = Math.min(genome.length - written, buffer.remaining() / Double.BYTES);
+                    buffer.asDoubleBuffer().put(genome, written, count);
+                    buffer.position(buffer.position() + (count * Double.BYTES));
+                    written += count;
+                }
+            }
+
+            drain(channel, buffer);
+            channel.force(true);
+        }
+
+        Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public static final PopulationCheckpoint read(final Path path) throws IOException
+    {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC) throw new IOException("Not a snake population checkpoint: " + path);
+
+            final int version = buffer.getInt();
+            if (version != VERSION) throw new IOException("Unsupported checkpoint version: " + version + ", requires: " + VERSION);
+
+            final byte[] speciesName = new byte[buffer.getShort()];
+            buffer.get(speciesName);
+            final SnakeSpecies species = SnakeSpecies.valueOf(new String(speciesName, StandardCharsets.UTF_8));
+            final int gridWidth = buffer.getInt();
+            final int gridHeight = buffer.getInt();
+
+            final int[] layerSizes = new int[buffer.getInt()];
+            for (int i = 0; i < layerSizes.length; i++) layerSizes[i] = buffer.getInt();
+
+            int dimension = 0;
+            for (int layer = 1; layer < layerSizes.length; layer++) dimension += (layerSizes[layer] * (layerSizes[layer - 1] + 1));
+
+            final int generation = buffer.getInt();
+            final long highScore = buffer.getLong();
+
+            final long[] randomState = new long[buffer.getInt()];
+            for (int i = 0; i < randomState.length; i++) randomState[i] = buffer.getLong();
+
+            final int populationSize = buffer.getInt();
+            final long[] fitness = new long[populationSize];
+            final double[][] genomes = new double[populationSize][dimension];
+            for (int rank = 0; rank < populationSize; rank++)
+            {
+                fitness[rank] = buffer.getLong();
+                buffer.asDoubleBuffer().get(genomes[rank]);
+                buffer.position(buffer.position() + (dimension * Double.BYTES));
+            }
+
+            return new PopulationCheckpoint(species, gridWidth, gridHeight, layerSizes, generation, highScore, randomState, fitness, genomes);
+        }
+        catch (IllegalArgumentException | BufferUnderflowException ex)
+        {
+            throw new IOException("Corrupt snake population checkpoint: " + path, ex);
+        }
+    }
+
+    // note, checks that the checkpoint was taken from a compatible snake pit
+    //
+    public final void verify(final SnakeFactory snakeFactory, final int[] requiredLayerSizes)
+    {
+        if ((species != snakeFactory.getSpecies()) || (gridWidth != snakeFactory.getGridWidth()) || (gridHeight != snakeFactory.getGridHeight()) || !Arrays.equals(layerSizes, requiredLayerSizes))
+        {
+            final StringBuffer errorMessage = new StringBuffer();
+            errorMessage.append("The checkpoint does not match the snake pit configuration, checkpoint: ");
+            errorMessage.append(species);
+            errorMessage.append(" ");
+            errorMessage.append(gridWidth);
+            errorMessage.append("x");
+            errorMessage.append(gridHeight);
+            errorMessage.append(" ");
+            errorMessage.append(Arrays.toString(layerSizes));
+            errorMessage.append(", required: ");
+            errorMessage.append(snakeFactory.getSpecies());
+            errorMessage.append(" ");
+            errorMessage.append(snakeFactory.getGridWidth());
+            errorMessage.append("x");
+            errorMessage.append(snakeFactory.getGridHeight());
+            errorMessage.append(" ");
+            errorMessage.append(Arrays.toString(requiredLayerSizes));
+
+            throw new IllegalArgumentException(errorMessage.toString());
+        }
+    }
+
+    private static final void ensureCapacity(final FileChannel channel, final ByteBuffer buffer, final int bytes) throws IOException
+    {
+        if (buffer.remaining() < bytes) drain(channel, buffer);
+    }
+
+    private static final void drain(final FileChannel channel, final ByteBuffer buffer) throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+}
@@ -0,0 +1,19 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake;
+
+//
+// which survival episodes SnakePit records for animation, see SnakeTrace
+//
+//   AllSnakes, every snake records its episode whilst being evaluated
+//   ChampionReplay, nothing is recorded during the evaluation, once ranked the best snake is re-simulated with recording enabled
+//                   this relies on each episode being a pure function of the snake's genome and seed, see Snake
+//
+
+public enum RecordingMode
+{
+    AllSnakes,
+    ChampionReplay
+}
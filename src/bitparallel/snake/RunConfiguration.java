@@ -0,0 +1,159 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+//
+// run time configuration, read from an optional properties file and then overridden by any command line arguments
+//
+// notes 1, arguments take the form --key=value, or just --key which is the same as --key=true
+//       2, --config=<file> names the properties file, it is loaded before any of the other arguments are applied
+//       3, unset keys return the default supplied by the caller
+//       4, a key that names something, e.g. a file, can't default to true, see getRequiredString()
+//
+
+public class RunConfiguration
+{
+    private static final String ARGUMENT_PREFIX = "--";
+    private static final String CONFIG_KEY = "config";
+
+    private final Properties properties;
+    private final Set<String> valuelessKeys;
+
+    public RunConfiguration(final String[] args) throws IOException
+    {
+        properties = new Properties();
+        valuelessKeys = new HashSet<String>();
+
+        for (final String arg : args)
+        {
+            if (arg.startsWith(ARGUMENT_PREFIX + CONFIG_KEY + "="))
+            {
+                try (final InputStream is = new FileInputStream(arg.substring(ARGUMENT_PREFIX.length() + CONFIG_KEY.length() + 1)))
+                {
+                    properties.load(is);
+                }
+            }
+        }
+
+        for (final String arg : args)
+        {
+            if (!arg.startsWith(ARGUMENT_PREFIX) || (arg.length() == ARGUMENT_PREFIX.length())) throw new IllegalArgumentException("Badly formed argument: " + arg + ", expected --key=value or --key");
+
+            final int separator = arg.indexOf('=');
+            if (separator < 0)
+            {
+                final String key = arg.substring(ARGUMENT_PREFIX.length());
+                properties.setProperty(key, "true");
+                valuelessKeys.add(key);
+            }
+            else
+            {
+                final String key = arg.substring(ARGUMENT_PREFIX.length(), separator);
+                properties.setProperty(key, arg.substring(separator + 1));
+                valuelessKeys.remove(key);
+            }
+        }
+    }
+
+    public final boolean contains(final String key)
+    {
+        return properties.containsKey(key);
+    }
+
+    public final String getString(final String key, final String defaultValue)
+    {
+        return properties.getProperty(key, defaultValue).trim();
+    }
+
+    // the value of a key that must be given one, i.e. --key=value or key=value in the properties file, a bare --key or an empty value is rejected
+    //
+    public final String getRequiredString(final String key, final String usage)
+    {
+        if (!contains(key) || valuelessKeys.contains(key) || getString(key, null).isEmpty())
+        {
+            final StringBuffer sb = new StringBuffer();
+            sb.append("A value is required for ").append(key).append(", usage: ").append(usage);
+            throw new IllegalArgumentException(sb.toString());
+        }
+
+        return getString(key, null);
+    }
+
+    public final boolean getBoolean(final String key, final boolean defaultValue)
+    {
+        return contains(key) ? Boolean.parseBoolean(getString(key, null)) : defaultValue;
+    }
+
+    public final int getInt(final String key, final int defaultValue)
+    {
+        try
+        {
+            return contains(key) ? Integer.parseInt(getString(key, null)) : defaultValue;
+        }
+        catch (NumberFormatException ex)
+        {
+            throw new IllegalArgumentException("Bad integer value for " + key + ": " + properties.getProperty(key));
+        }
+    }
+
+    public final long getLong(final String key, final long defaultValue)
+    {
+        try
+        {
+            return contains(key) ? Long.parseLong(getString(key, null)) : defaultValue;
+        }
+        catch (NumberFormatException ex)
+        {
+            throw new IllegalArgumentException("Bad long value for " + key + ": " + properties.getProperty(key));
+        }
+    }
+
+    public final double getDouble(final String key, final double defaultValue)
+    {
+        try
+        {
+            return contains(key) ? Double.parseDouble(getString(key, null)) : defaultValue;
+        }
+        catch (NumberFormatException ex)
+        {
+            throw new IllegalArgumentException("Bad double value for " + key + ": " + properties.getProperty(key));
+        }
+    }
+
+    public final <E extends Enum<E>> E getEnum(final String key, final Class<E> enumClass, final E defaultValue)
+    {
+        try
+        {
+            return contains(key) ? Enum.valueOf(enumClass, getString(key, null)) : defaultValue;
+        }
+        catch (IllegalArgumentException ex)
+        {
+            throw new IllegalArgumentException("Bad " + enumClass.getSimpleName() + " value for " + key + ": " + properties.getProperty(key));
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuffer sb = new StringBuffer();
+        for (final String key : new TreeSet<String>(properties.stringPropertyNames()))
+        {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(key);
+            sb.append("=");
+            sb.append(properties.getProperty(key));
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,84 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake;
+
+//
+// the running selection cutoff of a generation being evaluated, i.e. the lowest fitness amongst the best k snakes evaluated so far
+// used to race the snakes, a snake that can no longer reach the cutoff is stopped early, see Snake.race()
+//
+// notes 1, the cutoff only ever rises and can never exceed the k-th best fitness of the complete generation, so a snake that can't
+//          reach it can't be selected as a parent, i.e. racing never changes the selected parents or their ranking
+//       2, the best k fitness values are held as a min-heap, the cutoff is Long.MIN_VALUE until k snakes have been evaluated
+//       3, offered by the evaluation threads as each snake completes its survival episode(s), so offer() is synchronized and the cutoff
+//          is volatile, i.e. it can be read on every move without locking
+//
+
+public class SelectionCutoff
+{
+    private final long[] heap;
+    private int count;
+    private volatile long cutoff;
+
+    public SelectionCutoff(final int k)
+    {
+        if (k < 1) throw new IllegalArgumentException("The selection cutoff requires k of at least 1, value: " + k);
+
+        heap = new long[k];
+        reset();
+    }
+
+    // note, called before each generation is evaluated
+    //
+    public final synchronized void reset()
+    {
+        count = 0;
+        cutoff = Long.MIN_VALUE;
+    }
+
+    public final long getCutoff()
+    {
+        return cutoff;
+    }
+
+    public final synchronized void offer(final long fitness)
+    {
+        if (count < heap.length)
+        {
+            // sift up
+            //
+            int i = count++;
+            while (i > 0)
+            {
+                final int parent = (i - 1) >>> 1;
+                if (heap[parent] <= fitness) break;
+
+                heap[i] = heap[parent];
+                i = parent;
+            }
+
+            heap[i] = fitness;
+            if (count == heap.length) cutoff = heap[0];
+        }
+        else if (fitness > heap[0])
+        {
+            // replace the lowest and sift down
+            //
+            int i = 0;
+            while (true)
+            {
+                int child = (2 * i) + 1;
+                if (child >= count) break;
+                if (((child + 1) < count) && (heap[child + 1] < heap[child])) child++;
+                if (heap[child] >= fitness) break;
+
+                heap[i] = heap[child];
+                i = child;
+            }
+
+            heap[i] = fitness;
+            cutoff = heap[0];
+        }
+    }
+}
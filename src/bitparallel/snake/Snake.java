@@ -4,16 +4,14 @@
 
 package bitparallel.snake;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.List;
-
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
 import bitparallel.snake.geometry.Movement;
 import bitparallel.snake.geometry.Point;
 import bitparallel.snake.neural.NeuralNetwork;
+import bitparallel.snake.random.RandomSource;
+import bitparallel.snake.random.XoshiroRandom;
 
 public abstract class Snake
 {
@@ -26,22 +24,41 @@ public abstract class Snake
     protected static final int HATCHLING_LENGTH = 4;
     protected static final int HATCHLING_SPAWN_MARGIN = 4;
 
+    private static final int BODY_INITIAL_CAPACITY = 16;
+
     private final NeuralNetwork brain;
-    private final List<Movement> movements;
-    private final List<Point> foodLocations;
+    private final double[] movementVector;
+    private long seed;
+    private int hatchlingHeading;
+    private SnakeTrace trace;
+    private boolean recording;
+    private EpisodeSchedule episodes;
+    private int episode, foodCursor;
+    private long totalFitness;
+    private SelectionCutoff selectionCutoff;
+    private int moveCount, prunedMoveCount;
+    private int[] body;
+    private int bodyTail, bodyLength;
+    private Point head;
     private long fitness;
     private int moveTimeoutLimit;
 
+    // the state of the survival episode in progress
+    //
+    private Point foodLocation;
+    private double distanceToFood;
+    private int moveTimeout, movedCloserToFood, movedAwayFromFood, foodCount;
+    private boolean alive;
+
     protected static final double PI_BY_TWO = Math.PI / 2.0;
     protected static final double THREE_PI_BY_TWO = 3.0 * Math.PI / 2.0;
     protected static final double ROOT_TWO = Math.sqrt(2.0);
 
     protected final int gridWidth, gridHeight;
-    protected final PsuedoRandom random;
-    protected final LinkedList<Point> segments, hatchling;
+    protected final RandomSource random;
+    protected final BodyBitboards bodyBitboards;
 
     // food locations are constructed using specific Point instances, so delegated to the specific concrete derived class
-    // requied to support List.contains() when matching the snake head segment with the food location
     //
     protected abstract Point createNewFoodLocation(final int x, final int y);
 
@@ -62,65 +79,124 @@ public abstract class Snake
     protected abstract void addSouthHatchling();
     protected abstract void addWestHatchling();
 
-    public Snake(final NeuralNetwork brain, final int gridWidth, final int gridHeight)
+    // notes 1, the seed initialises this snake's own random source, it is used during the hatching, food placement and movement
+    //          tie-breaks, and so allows each snake to be evaluated independently and reproducibly on any thread
+    //       2, i.e. the survival episode is a pure function of the brain's genome and the seed, see SnakePit.replay()
+    //
+    public Snake(final NeuralNetwork brain, final int gridWidth, final int gridHeight, final long seed)
     {
         this.brain = brain;
         this.gridWidth = gridWidth;
         this.gridHeight = gridHeight;
+        this.seed = seed;
+
+        random = new XoshiroRandom(seed);
+
+        // reused on every move, see NeuralNetwork.think()
+        //
+        movementVector = new double[brain.getNumberOfOutputs()];
 
         // create the initial hatchling snake, always straight, 3 segments and a head, can point in any 90 degree compass heading
         // notes 1, the snake is defined tail first
         //       2, grid[0, 0] is defined as top left, bottom right is [gridWidth - 1, gridHeight - 1]
         //
-        hatchling = new LinkedList<Point>();
-        segments = new LinkedList<Point>();
+        // notes 1, the body is held as a ring buffer of packed (y * gridWidth + x) cell indices, tail first, grown on demand
+        //       2, the bitboards have a bit per grid cell, set for each body segment, giving constant time collision checks and the vision scans used by look()
+        //
+        body = new int[BODY_INITIAL_CAPACITY];
+        bodyTail = 0;
+        bodyLength = 0;
+        bodyBitboards = new BodyBitboards(gridWidth, gridHeight);
+
+        hatch();
+    }
+
+    // respawns this snake as a newly hatched snake, exactly as if it had been constructed using the given seed
+    //
+    // notes 1, all of this snake's instances are reused, i.e. the body, bitboards, random source and brain, so nothing is allocated
+    //          other than the hatchling's segment points
+    //       2, the brain is unchanged, the caller sets its new genome, see NeuralNetwork.setState()
+    //
+    public final void reset(final long seed)
+    {
+        this.seed = seed;
+        random.setSeed(seed);
+
+        // nothing is recorded unless enabled, see enableRecording()
+        //
+        recording = false;
+        trace = null;
 
-        random = PsuedoRandom.INSTANCE;
-        switch (random.nextInt(4))
+        clearBody();
+        hatch();
+    }
+
+    // the common episodes to be played by survive(), rather than a single episode of this snake's own, see EpisodeSchedule
+    //
+    // notes 1, the fitness is then the mean over the episodes, the length and trace are those of the last episode
+    //       2, null restores the single episode, i.e. hatched and fed using this snake's own seed
+    //
+    final void setEpisodes(final EpisodeSchedule episodes)
+    {
+        this.episodes = episodes;
+    }
+
+    // stops the survival early should this snake no longer be able to reach the cutoff, see race()
+    // note, null (the default) disables racing, i.e. the snake always survives until it dies
+    //
+    final void setSelectionCutoff(final SelectionCutoff selectionCutoff)
+    {
+        this.selectionCutoff = selectionCutoff;
+    }
+
+    private final void clearBody()
+    {
+        for (int i = 0; i < bodyLength; i++)
+        {
+            final int cell = getSegmentCell(i);
+            bodyBitboards.clear(cell % gridWidth, cell / gridWidth);
+        }
+
+        bodyTail = 0;
+        bodyLength = 0;
+    }
+
+    // creates the hatchling and clears the state of any previous survival episode
+    //
+    private final void hatch()
+    {
+        foodLocation = null;
+        alive = false;
+
+        hatchlingHeading = random.nextInt(4);
+        switch (hatchlingHeading)
         {
             // north facing snake
             //
-            case 0:
-            {
+            case SnakeTrace.NORTH:
                 addNorthHatchling();
-                if (logger.isDebugEnabled()) for (int i = 0; i < segments.size(); i++) logger.debug("Hatchling (North): " + segments.get(i).toString());
                 break;
-            }
 
             // east facing snake
             //
-            case 1:
-            {
+            case SnakeTrace.EAST:
                 addEastHatchling();
-                if (logger.isDebugEnabled()) for (int i = 0; i < segments.size(); i++) logger.debug("Hatchling (East): " + segments.get(i).toString());
                 break;
-            }
 
             // south facing snake
             //
-            case 2:
-            {
+            case SnakeTrace.SOUTH:
                 addSouthHatchling();
-                if (logger.isDebugEnabled()) for (int i = 0; i < segments.size(); i++) logger.debug("Hatchling (South): " + segments.get(i).toString());
                 break;
-            }
 
             // west facing snake
             //
-            case 3:
-            {
+            case SnakeTrace.WEST:
                 addWestHatchling();
-                if (logger.isDebugEnabled()) for (int i = 0; i < segments.size(); i++) logger.debug("Hatchling (West): " + segments.get(i).toString());
                 break;
-            }
         }
 
-        // used to record the movements and food locations for this snake
-        // notes 1. movements are stored as relative displacements
-        //       2. food locations are stored as absolute grid locations
-        //
-        movements = new ArrayList<Movement>();
-        foodLocations = new ArrayList<Point>();
+        if (logger.isDebugEnabled()) logger.debug("Hatchling heading: " + hatchlingHeading + ", head: " + head);
 
         // each time the snake consumes food, this limit is increased by SNAKE_MOVE_TIMEOUT_INCREMENT
         //
@@ -140,80 +216,236 @@ public abstract class Snake
         return brain;
     }
 
-    public final void survive()
+    public final long getSeed()
     {
-        // generate the initial food location, make sure it doesn't exist within the hatchling snake
-        //
-        Point foodLocation = createNewFoodLocation(random.nextInt(gridWidth), random.nextInt(gridHeight));
-        while (segments.contains(foodLocation)) foodLocation = createNewFoodLocation(random.nextInt(gridWidth), random.nextInt(gridHeight));
-        foodLocations.add(foodLocation);
+        return seed;
+    }
 
-        double distanceToFood = Math.sqrt(Math.pow((foodLocation.getX() - segments.getLast().getX()), 2.0) + Math.pow((foodLocation.getY() - segments.getLast().getY()), 2.0));
-        int moveTimeout = 0, movedCloserToFood = 0, movedAwayFromFood = 0, foodCount = 0;
-        while (true)
+    // records the hatchling, movements and food locations during survive(), should this snake be animated, see SnakeTrace
+    // note, must be enabled before the survival episode begins
+    //
+    public final void enableRecording()
+    {
+        if (foodLocation != null) throw new IllegalStateException("Unable to enable recording, the survival episode has already begun");
+
+        recording = true;
+        trace = new SnakeTrace(gridWidth);
+        trace.setHatchling(getSegmentCell(0), hatchlingHeading, bodyLength);
+    }
+
+    public final void survive()
+    {
+        beginSurvival();
+        do
         {
-            if (++moveTimeout > moveTimeoutLimit)
+            while (alive)
             {
-                logger.debug("Snake killed off due to a 'no food found' move timeout: " + moveTimeoutLimit);
-                break;
+                brain.think(observe(), movementVector);
+                move(movementVector);
             }
+        }
+        while (beginNextEpisode());
+    }
 
-            final Point currentHead = segments.getLast();
-            final double[] visionVector = look(currentHead, foodLocation);
-            final double[] movementVector = brain.think(visionVector);
-            final Movement move = createNewMovement(movementVector);
+    //
+    // the individual stages of survive(), these allow a population to be evaluated in lockstep, see LockstepEvaluator
+    //
 
-            // slither time... check for snake collision with the boundary and itself
-            //
-            final Point newHead = move.translate(currentHead);
-            if ((newHead.getX() < 0) || (newHead.getX() >= gridWidth) || (newHead.getY() < 0) || (newHead.getY() >= gridHeight)) break;
-            if (segments.contains(newHead)) break;
+    final void beginSurvival()
+    {
+        moveCount = 0;
+        prunedMoveCount = 0;
 
-            segments.addLast(newHead);
-            movements.add(move);
+        if (episodes != null)
+        {
+            totalFitness = 0;
+            startEpisode(0);
+        }
 
-            // penalise the snake if it moves away from the food, keep specific counts, used later to calculate the fitness score
-            //
-            final double newDistanceToFood = Math.sqrt(Math.pow((foodLocation.getX() - newHead.getX()), 2.0) + Math.pow((foodLocation.getY() - newHead.getY()), 2.0));
-            if (newDistanceToFood <= distanceToFood)
-            {
-                movedCloserToFood++;
-            }
-            else
-            {
-                movedAwayFromFood++;
-            }
+        beginEpisode();
+    }
 
-            distanceToFood = newDistanceToFood;
+    // once the snake has died, starts the next of the common episodes, returns false once all of them have been played
+    //
+    final boolean beginNextEpisode()
+    {
+        if ((episodes == null) || ((episode + 1) == episodes.getEpisodeCount())) return false;
 
-            if (foodLocation.equals(newHead))
-            {
-                foodCount++;
-                moveTimeout = 0;
-                moveTimeoutLimit += SNAKE_MOVE_TIMEOUT_INCREMENT;
-                if (moveTimeoutLimit > SNAKE_MOVE_TIMEOUT_LIMIT) moveTimeoutLimit = SNAKE_MOVE_TIMEOUT_LIMIT;
-
-                // generate new food and update the location
-                //
-                foodLocation = createNewFoodLocation(random.nextInt(gridWidth), random.nextInt(gridHeight));
-                while (segments.contains(foodLocation)) foodLocation = createNewFoodLocation(random.nextInt(gridWidth), random.nextInt(gridHeight));
-                foodLocations.add(foodLocation);
-            }
-            else
-            {
-                // no food found, so remove the last snake segment
-                // i.e. the snake has not been able to "grow" its last segment once the body has been shifted
-                //
-                segments.removeFirst();
-            }
+        startEpisode(episode + 1);
+        beginEpisode();
+        return true;
+    }
+
+    // re-hatches this snake as dictated by the episode schedule
+    //
+    private final void startEpisode(final int episode)
+    {
+        this.episode = episode;
+        foodCursor = 0;
+
+        clearBody();
+        random.setSeed(episodes.getHatchlingSeed(episode));
+        hatch();
+
+        if (recording)
+        {
+            trace = new SnakeTrace(gridWidth);
+            trace.setHatchling(getSegmentCell(0), hatchlingHeading, bodyLength);
         }
+    }
 
-        // how did the snake perform?
+    private final void beginEpisode()
+    {
+        // generate the initial food location, make sure it doesn't exist within the hatchling snake
         //
-        // notes 1, snakes that move away from their food more than they do towards it get penalised
-        //       2, this appears to work well and outperforms the original / simpler "moveCount * (2 << foodCount)" approach
+        foodLocation = createFood();
+        if (trace != null) trace.addFood(foodLocation.getX(), foodLocation.getY());
+
+        distanceToFood = Math.sqrt(Math.pow((foodLocation.getX() - head.getX()), 2.0) + Math.pow((foodLocation.getY() - head.getY()), 2.0));
+        movedCloserToFood = movedAwayFromFood = foodCount = 0;
+
+        // note, the move timeout counts the move about to be made, so is 1 (and within any limit) before the first move
         //
-        fitness = movedCloserToFood - (int)Math.round(1.5 * movedAwayFromFood) + (10 * foodCount);
+        moveTimeout = 1;
+        alive = true;
+    }
+
+    final boolean isAlive()
+    {
+        return alive;
+    }
+
+    final double[] observe()
+    {
+        return look(head, foodLocation);
+    }
+
+    final void move(final double[] movementVector)
+    {
+        moveCount++;
+
+        final Point currentHead = head;
+        final Movement move = createNewMovement(movementVector);
+
+        // slither time... check for snake collision with the boundary and itself
+        //
+        // note, the tail is still present at this point, so moving into the current tail position counts as a collision
+        //
+        final Point newHead = move.translate(currentHead);
+        final int newX = newHead.getX(), newY = newHead.getY();
+        if ((newX < 0) || (newX >= gridWidth) || (newY < 0) || (newY >= gridHeight) || isOccupied(newX, newY))
+        {
+            die();
+            return;
+        }
+
+        addHead(newHead);
+        if (trace != null) trace.addMove(newX - currentHead.getX(), newY - currentHead.getY());
+
+        // penalise the snake if it moves away from the food, keep specific counts, used later to calculate the fitness score
+        //
+        final double newDistanceToFood = Math.sqrt(Math.pow((foodLocation.getX() - newX), 2.0) + Math.pow((foodLocation.getY() - newY), 2.0));
+        if (newDistanceToFood <= distanceToFood)
+        {
+            movedCloserToFood++;
+        }
+        else
+        {
+            movedAwayFromFood++;
+        }
+
+        distanceToFood = newDistanceToFood;
+
+        if ((foodLocation.getX() == newX) && (foodLocation.getY() == newY))
+        {
+            foodCount++;
+            moveTimeout = 0;
+            moveTimeoutLimit += SNAKE_MOVE_TIMEOUT_INCREMENT;
+            if (moveTimeoutLimit > SNAKE_MOVE_TIMEOUT_LIMIT) moveTimeoutLimit = SNAKE_MOVE_TIMEOUT_LIMIT;
+
+            // generate new food and update the location
+            //
+            foodLocation = createFood();
+            if (trace != null) trace.addFood(foodLocation.getX(), foodLocation.getY());
+        }
+        else
+        {
+            // no food found, so remove the last snake segment
+            // i.e. the snake has not been able to "grow" its last segment once the body has been shifted
+            //
+            removeTail();
+        }
+
+        if (++moveTimeout > moveTimeoutLimit)
+        {
+            logger.debug("Snake killed off due to a 'no food found' move timeout: " + moveTimeoutLimit);
+            die();
+        }
+        else if (selectionCutoff != null)
+        {
+            race();
+        }
+    }
+
+    // stops a snake that is certain to starve, and so can't reach the selection cutoff, without making its remaining moves
+    //
+    // notes 1, every move changes the manhattan distance to the food by exactly 1 and it only moves closer (by the euclidean distance
+    //          used by move()) when the manhattan distance decreases, so a snake that is further from the food than the moves it has
+    //          left before the move timeout can't eat, and its fitness can increase by at most 1 per move
+    //       2, the timeout is extended whenever food is eaten, so no useful bound exists whilst the food is within reach
+    //          likewise with common episodes, only the last episode is raced
+    //       3, the stopped snake's fitness is that of its moves so far, i.e. below the cutoff, as is its true fitness
+    //
+    private final void race()
+    {
+        // the moves left, including the move that will trigger the timeout
+        //
+        final int movesLeft = moveTimeoutLimit - moveTimeout + 1;
+        final int foodDistance = Math.abs(foodLocation.getX() - head.getX()) + Math.abs(foodLocation.getY() - head.getY());
+        if (foodDistance <= movesLeft) return;
+        if ((episodes != null) && ((episode + 1) < episodes.getEpisodeCount())) return;
+
+        final long fitnessBound = meanFitness(episodeFitness(movedCloserToFood + movesLeft, movedAwayFromFood));
+        if (fitnessBound < selectionCutoff.getCutoff())
+        {
+            prunedMoveCount += movesLeft;
+            die();
+        }
+    }
+
+    private final void die()
+    {
+        alive = false;
+
+        final long episodeFitness = episodeFitness(movedCloserToFood, movedAwayFromFood);
+        fitness = meanFitness(episodeFitness);
+        if (episodes == null)
+        {
+            if (selectionCutoff != null) selectionCutoff.offer(fitness);
+            return;
+        }
+
+        totalFitness += episodeFitness;
+        if ((selectionCutoff != null) && ((episode + 1) == episodes.getEpisodeCount())) selectionCutoff.offer(fitness);
+    }
+
+    // how did the snake perform?
+    //
+    // notes 1, snakes that move away from their food more than they do towards it get penalised
+    //       2, this appears to work well and outperforms the original / simpler "moveCount * (2 << foodCount)" approach
+    //
+    private final long episodeFitness(final int movedCloserToFood, final int movedAwayFromFood)
+    {
+        return movedCloserToFood - (int)Math.round(1.5 * movedAwayFromFood) + (10 * foodCount);
+    }
+
+    // the mean of the episodes played so far, including the current episode's given fitness, i.e. of all of them once the last episode has been played
+    //
+    private final long meanFitness(final long episodeFitness)
+    {
+        if (episodes == null) return episodeFitness;
+
+        return Math.round((double)(totalFitness + episodeFitness) / (double)(episode + 1));
     }
 
     public final long getFitness()
@@ -221,27 +453,124 @@ public abstract class Snake
         return fitness;
     }
 
+    // note, used for immigrant snakes, their fitness having been evaluated elsewhere, see SnakePit.immigrate()
+    //
+    final void assignFitness(final long fitness)
+    {
+        this.fitness = fitness;
+    }
+
     public final int getLength()
     {
-        return segments.size();
+        return bodyLength;
     }
 
+    // the moves made during the last survival, over all of its episodes, including any fatal move
     //
-    // methods below are used for animation, should this snake get chosen...
+    final int getMoveCount()
+    {
+        return moveCount;
+    }
+
+    // the moves this snake would have made before starving had it not been stopped by race(), at most
+    // note, i.e. unless it would have collided first
+    //
+    final int getPrunedMoveCount()
+    {
+        return prunedMoveCount;
+    }
+
     //
+    // methods below maintain the snake's body
+    //
+
+    // used by the derived classes when hatching, the point becomes both a hatchling segment and the new head
+    //
+    protected final void addHatchling(final Point point)
+    {
+        addHead(point);
+    }
+
+    protected final int getSegmentCount()
+    {
+        return bodyLength;
+    }
+
+    // returns the packed (y * gridWidth + x) cell index of the given segment, index 0 is the tail
+    //
+    protected final int getSegmentCell(final int index)
+    {
+        return body[(bodyTail + index) & (body.length - 1)];
+    }
 
-    public final LinkedList<Point> getHatchling()
+    protected final boolean isOccupied(final int x, final int y)
     {
-        return hatchling;
+        return bodyBitboards.isSet(x, y);
     }
 
-    public final List<Movement> getMovements()
+    private final void addHead(final Point point)
     {
-        return movements;
+        // the capacity is always a power of two, so the ring can be indexed using a mask
+        //
+        if (bodyLength == body.length)
+        {
+            final int[] grownBody = new int[body.length << 1];
+            for (int i = 0; i < bodyLength; i++) grownBody[i] = body[(bodyTail + i) & (body.length - 1)];
+            body = grownBody;
+            bodyTail = 0;
+        }
+
+        body[(bodyTail + bodyLength) & (body.length - 1)] = (point.getY() * gridWidth) + point.getX();
+        bodyLength++;
+        bodyBitboards.set(point.getX(), point.getY());
+        head = point;
+    }
+
+    private final void removeTail()
+    {
+        final int cell = body[bodyTail];
+        bodyBitboards.clear(cell % gridWidth, cell / gridWidth);
+        bodyTail = (bodyTail + 1) & (body.length - 1);
+        bodyLength--;
     }
 
-    public final List<Point> getFoodLocations()
+    // note, keep drawing until the food doesn't land on the snake
+    //
+    private final Point createFood()
+    {
+        if (episodes != null)
+        {
+            final int cellCount = episodes.getCellCount();
+            int cell = episodes.getFoodCell(episode, foodCursor);
+            foodCursor = (foodCursor + 1) % cellCount;
+            while (isOccupied(cell % gridWidth, cell / gridWidth))
+            {
+                cell = episodes.getFoodCell(episode, foodCursor);
+                foodCursor = (foodCursor + 1) % cellCount;
+            }
+
+            return createNewFoodLocation(cell % gridWidth, cell / gridWidth);
+        }
+
+        int x = random.nextInt(gridWidth);
+        int y = random.nextInt(gridHeight);
+        while (isOccupied(x, y))
+        {
+            x = random.nextInt(gridWidth);
+            y = random.nextInt(gridHeight);
+        }
+
+        return createNewFoodLocation(x, y);
+    }
+
+    //
+    // methods below are used for animation, should this snake get chosen...
+    //
+
+    // note, null unless recording was enabled
+    //
+    public final SnakeTrace getTrace()
     {
-        return foodLocations;
+        return trace;
     }
 }
@@ -7,6 +7,7 @@ package bitparallel.snake;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
+import bitparallel.snake.neural.NetworkPrecision;
 import bitparallel.snake.neural.NeuralNetwork;
 import bitparallel.snake.neural.activation.Activation;
 import bitparallel.snake.neural.activation.ReLU;
@@ -17,12 +18,31 @@ public class SnakeFactory
 
     private final SnakeSpecies species;
     private final int gridWidth, gridHeight;
+    private final NetworkPrecision precision;
+    private final boolean compiledNetworks;
 
     public SnakeFactory(final SnakeSpecies species, final int gridWidth, final int gridHeight)
+    {
+        this(species, gridWidth, gridHeight, NetworkPrecision.Double);
+    }
+
+    // note, the precision of every snake's brain, see NetworkPrecision
+    //
+    public SnakeFactory(final SnakeSpecies species, final int gridWidth, final int gridHeight, final NetworkPrecision precision)
+    {
+        this(species, gridWidth, gridHeight, precision, false);
+    }
+
+    // note, compiledNetworks replaces each brain's interpreted forward pass with a class generated for the species' topology, should it
+    //       be supported, see NeuralNetwork.compile(), this is checked once on a prototype brain and an unsupported precision, topology
+    //       or a missing compiler is logged and falls back to the interpreter, i.e. isCompiledNetworks() reports what actually happened
+    //
+    public SnakeFactory(final SnakeSpecies species, final int gridWidth, final int gridHeight, final NetworkPrecision precision, final boolean compiledNetworks)
     {
         this.species = species;
         this.gridWidth = gridWidth;
         this.gridHeight = gridHeight;
+        this.precision = precision;
 
         switch (species)
         {
@@ -37,6 +57,15 @@ public class SnakeFactory
             default:
                 throw new IllegalArgumentException("Unable to build the Snake instance, bad SnakeSpecies enum");
         }
+
+        logger.info("Neural network precision: " + precision);
+        this.compiledNetworks = compiledNetworks && compilePrototype();
+        logger.info("Compiled neural networks: " + this.compiledNetworks);
+    }
+
+    public final SnakeSpecies getSpecies()
+    {
+        return species;
     }
 
     public final int getGridWidth()
@@ -49,7 +78,46 @@ public class SnakeFactory
         return gridHeight;
     }
 
-    public final Snake getSnakeInstance()
+    public final NetworkPrecision getPrecision()
+    {
+        return precision;
+    }
+
+    public final boolean isCompiledNetworks()
+    {
+        return compiledNetworks;
+    }
+
+    // note, the seed initialises the snake's own random source, see Snake
+    //
+    public final Snake getSnakeInstance(final long seed)
+    {
+        final Snake snake = hatch(seed);
+        if (compiledNetworks) snake.getBrain().compile();
+
+        return snake;
+    }
+
+    // compiles a prototype brain, the generated class is then shared by every snake's brain, see NetworkCompiler
+    //
+    private final boolean compilePrototype()
+    {
+        if (precision != NetworkPrecision.Double)
+        {
+            logger.warn("Unable to compile the neural networks, only the Double precision is supported, the " + precision + " networks will be interpreted");
+            return false;
+        }
+
+        if (!hatch(0).getBrain().compile())
+        {
+            logger.warn("Unable to compile the " + species + " neural networks, see the NetworkCompiler log, the networks will be interpreted");
+            return false;
+        }
+
+        return true;
+    }
+
+    private final Snake hatch(final long seed)
     {
         final Snake snake;
         switch (species)
@@ -63,9 +131,9 @@ public class SnakeFactory
                 final int nnSizeHiddenLayer2 = 20;
                 final int nnOutputs = 4;
                 final Activation activation = new ReLU();
-                final NeuralNetwork brain = new NeuralNetwork(activation, nnInputs, nnOutputs, nnSizeHiddenLayer1, nnSizeHiddenLayer2);
+                final NeuralNetwork brain = new NeuralNetwork(precision, activation, nnInputs, nnOutputs, nnSizeHiddenLayer1, nnSizeHiddenLayer2);
 
-                snake = new FullMovementSnake(brain, gridWidth, gridHeight);
+                snake = new FullMovementSnake(brain, gridWidth, gridHeight, seed);
                 break;
             }
 
@@ -78,9 +146,9 @@ public class SnakeFactory
                 final int nnSizeHiddenLayer2 = 8;
                 final int nnOutputs = 3;
                 final Activation activation = new ReLU();
-                final NeuralNetwork brain = new NeuralNetwork(activation, nnInputs, nnOutputs, nnSizeHiddenLayer1, nnSizeHiddenLayer2);
+                final NeuralNetwork brain = new NeuralNetwork(precision, activation, nnInputs, nnOutputs, nnSizeHiddenLayer1, nnSizeHiddenLayer2);
 
-                snake = new ForwardOnlySnake(brain, gridWidth, gridHeight);
+                snake = new ForwardOnlySnake(brain, gridWidth, gridHeight, seed);
                 break;
             }
 
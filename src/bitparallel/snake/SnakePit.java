@@ -4,30 +4,62 @@
 
 package bitparallel.snake;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
+import bitparallel.snake.metrics.EvolutionMetrics;
+import bitparallel.snake.metrics.Phase;
 import bitparallel.snake.neural.NeuralNetwork;
+import bitparallel.snake.neural.NetworkPrecision;
 import bitparallel.snake.neural.NetworkState;
+import bitparallel.snake.random.RandomSource;
+import bitparallel.snake.random.XoshiroRandom;
 
 public class SnakePit
 {
     private static final Logger logger = LogManager.getLogger(SnakePit.class);
 
+    // the smallest slice of the population evaluated as a single fork-join task
+    //
+    private static final int EVALUATION_SLICE_SIZE = 64;
+
     private final SnakeFactory snakeFactory;
     private final int populationSize;
-    private final PsuedoRandom random;
+    private final RandomSource random;
     private final double mutationThreshold;
-    private final List<Snake> snakes, selectedMates;
+    private final List<Snake> selectedMates;
+    private List<Snake> snakes, spareSnakes;
     private final EvolutionLogger csvEvolutionProgressLogger;
+    private final ForkJoinPool evaluationPool;
+    private final ThreadLocal<LockstepEvaluator> lockstepEvaluators;
+    private EvaluationMode evaluationMode;
+    private RecordingMode recordingMode;
+    private EpisodeSchedule episodes;
+    private SelectionCutoff selectionCutoff;
+    private double prunedMoveFraction;
+    private EvolutionMetrics metrics;
+    private boolean metricsCsvColumns;
+    private String checkpointFileName;
+    private int checkpointInterval;
     private int generation;
-    private Snake bestSnake, animationSnake;
+    private Snake bestSnake, animationSnake, replaySnake;
     private long highScore;
+    private double[] genomeDaughter, genomeSon, widenedMother, widenedFather;
+    private NetworkState stateDaughter, stateSon;
 
-    public SnakePit(final SnakeFactory snakeFactory, final int populationSize, final double mutationProbability, final EvolutionLogger csvEvolutionProgressLogger)
+    // notes 1, the seed is used by the master random source, each snake's seed is drawn from it, it also performs the crossover
+    //          and mutation, all of these draws are made on the calling thread, so a given seed always evolves the same population
+    //       2, when evaluationThreads > 1 the population is evaluated in parallel using a fork-join pool, otherwise sequentially on the calling thread
+    //
+    public SnakePit(final SnakeFactory snakeFactory, final int populationSize, final double mutationProbability, final long seed, final int evaluationThreads, final EvolutionLogger csvEvolutionProgressLogger)
     {
         this.snakeFactory = snakeFactory;
         this.populationSize = populationSize;
@@ -37,11 +69,31 @@ public class SnakePit
         mutationThreshold = 1.0 - mutationProbability;
         logger.info("Mutation threshold: " + this.mutationThreshold + " (Probability: " + mutationProbability + ")");
 
+        if (evaluationThreads < 1) throw new IllegalArgumentException("At least one evaluation thread is required, value: " + evaluationThreads);
+        evaluationPool = (evaluationThreads > 1) ? new ForkJoinPool(evaluationThreads) : null;
+        logger.info("Evaluation threads: " + evaluationThreads + ", random seed: " + seed);
+
+        // note, a lockstep evaluator (and its batch) per evaluating thread, created on its first slice and reused for every later slice
+        //       and generation, the population's snakes all share a topology, activation and precision so any snake is the prototype
+        //
+        lockstepEvaluators = ThreadLocal.withInitial(() -> new LockstepEvaluator(snakes.get(0), EVALUATION_SLICE_SIZE));
+
+        evaluationMode = EvaluationMode.PerSnake;
+        recordingMode = RecordingMode.ChampionReplay;
+        episodes = null;
+        selectionCutoff = null;
+        prunedMoveFraction = 0;
+        metrics = null;
+        metricsCsvColumns = false;
+        checkpointFileName = null;
+        checkpointInterval = 0;
         generation = 0;
-        random = PsuedoRandom.INSTANCE;
+        random = new XoshiroRandom(seed);
         snakes = new ArrayList<Snake>();
+        spareSnakes = new ArrayList<Snake>();
         selectedMates = new ArrayList<Snake>();
         highScore = 0;
+        replaySnake = null;
     }
 
     public final int getGeneration()
@@ -49,68 +101,308 @@ public class SnakePit
         return generation;
     }
 
+    // note, all modes produce identical results, they differ only in how the work is scheduled
+    //
+    public final void setEvaluationMode(final EvaluationMode evaluationMode)
+    {
+        this.evaluationMode = evaluationMode;
+        logger.info("Evaluation mode: " + evaluationMode);
+    }
+
+    // note, the fitness values and so the evolution are the same in both modes
+    //
+    public final void setRecordingMode(final RecordingMode recordingMode)
+    {
+        this.recordingMode = recordingMode;
+        logger.info("Recording mode: " + recordingMode);
+    }
+
+    // every snake in a generation plays the same episodeCount episodes and its fitness is the mean, see EpisodeSchedule
+    // note, a single episode (the default) is played using each snake's own seed, i.e. every snake plays a different game
+    //
+    public final void setEpisodes(final int episodeCount)
+    {
+        if (episodeCount < 1) throw new IllegalArgumentException("At least one episode is required, value: " + episodeCount);
+
+        episodes = (episodeCount > 1) ? new EpisodeSchedule(episodeCount, snakeFactory.getGridWidth(), snakeFactory.getGridHeight()) : null;
+        logger.info("Episodes: " + episodeCount + ((episodeCount > 1) ? " (common to all snakes)" : ""));
+    }
+
+    // races the snakes during the evaluation, i.e. stops any snake that can no longer be selected as a parent, see Snake.race()
+    // note, the parents and their ranking are unchanged, only the fitness of the snakes ranked below them may be lower
+    //
+    public final void setRacing(final boolean racing)
+    {
+        selectionCutoff = racing ? new SelectionCutoff(getSelectionLimit()) : null;
+        logger.info("Racing: " + racing);
+    }
+
+    // the fraction of the last generation's moves saved by racing, an upper bound, see Snake.getPrunedMoveCount()
+    //
+    public final double getPrunedMoveFraction()
+    {
+        return prunedMoveFraction;
+    }
+
+    // times each phase of the evolution and records each generation's throughput, see EvolutionMetrics
+    // note, csvColumns appends the columns described by EvolutionMetrics.CSV_HEADER to each CSV record, i.e. the header must include them
+    //
+    public final void setMetrics(final EvolutionMetrics metrics, final boolean csvColumns)
+    {
+        this.metrics = metrics;
+        metricsCsvColumns = (metrics != null) && csvColumns;
+        logger.info("Metrics: " + ((metrics == null) ? "none" : metrics.getName()) + (metricsCsvColumns ? ", with CSV columns" : ""));
+    }
+
+    public final EvolutionMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    // write a checkpoint after every interval generations, see checkpoint()
+    //
+    public final void enableCheckpoints(final String fileName, final int interval)
+    {
+        if (interval < 1) throw new IllegalArgumentException("The checkpoint interval must be at least 1, value: " + interval);
+
+        checkpointFileName = fileName;
+        checkpointInterval = interval;
+        logger.info("Checkpoint every " + interval + " generations to " + fileName);
+    }
+
+    // writes the ranked population, its genomes, the generation, high score and master random state
+    // note, only valid once a generation has been evaluated, i.e. after survive()
+    //
+    public final void checkpoint(final String fileName) throws IOException
+    {
+        if (bestSnake == null) throw new IllegalStateException("Unable to checkpoint, no generation has been evaluated");
+
+        final long[] fitness = new long[snakes.size()];
+        final double[][] genomes = new double[snakes.size()][];
+        for (int rank = 0; rank < snakes.size(); rank++)
+        {
+            final Snake snake = snakes.get(rank);
+            fitness[rank] = snake.getFitness();
+            final NetworkState state = snake.getBrain().getState();
+            genomes[rank] = (state.getPrecision() == NetworkPrecision.Double) ? state.getGenome() : state.copyGenome();
+        }
+
+        final int[] layerSizes = bestSnake.getBrain().getLayerSizes();
+        final PopulationCheckpoint checkpoint = new PopulationCheckpoint(snakeFactory.getSpecies(), snakeFactory.getGridWidth(), snakeFactory.getGridHeight(), layerSizes, generation, highScore, random.getState(), fitness, genomes);
+        checkpoint.write(Paths.get(fileName));
+    }
+
+    // copies of the genomes of the fittest snakes, ranked fittest first, used to migrate them to other islands
+    // note, only valid once a generation has been evaluated, i.e. after survive()
+    //
+    public final MigrantGenomes getEmigrants(final int sourceIsland, final int count)
+    {
+        if (bestSnake == null) throw new IllegalStateException("Unable to select emigrants, no generation has been evaluated");
+
+        final int emigrantCount = Math.min(count, snakes.size());
+        final long[] fitness = new long[emigrantCount];
+        final double[][] genomes = new double[emigrantCount][];
+        for (int rank = 0; rank < emigrantCount; rank++)
+        {
+            final Snake snake = snakes.get(rank);
+            fitness[rank] = snake.getFitness();
+            genomes[rank] = snake.getBrain().getState().copyGenome();
+        }
+
+        return new MigrantGenomes(sourceIsland, generation, bestSnake.getBrain().getLayerSizes(), fitness, genomes);
+    }
+
+    // the immigrants replace the weakest parents, i.e. the lowest ranked selected mates, then the parents are re-ranked
+    // so a fitter immigrant may become the best snake, and so the elite and the mother of the next generation
+    //
+    // notes 1, the immigrants are taken in the supplied order, i.e. the caller must order them deterministically, see Island
+    //       2, at most (parents - 1) immigrants are accepted, the local best snake is never replaced
+    //       3, only valid after survive() and before the next spawn()
+    //
+    public final void immigrate(final List<MigrantGenomes> immigrants)
+    {
+        if (bestSnake == null) throw new IllegalStateException("Unable to accept immigrants, no generation has been evaluated");
+
+        final int parentCount = Math.min(getSelectionLimit(), snakes.size());
+        final int[] layerSizes = bestSnake.getBrain().getLayerSizes();
+        int rank = parentCount - 1;
+        for (final MigrantGenomes migrants : immigrants)
+        {
+            if (!Arrays.equals(layerSizes, migrants.getLayerSizes())) throw new IllegalArgumentException("Incorrect immigrant network topology: " + Arrays.toString(migrants.getLayerSizes()) + ", required: " + Arrays.toString(layerSizes));
+
+            for (int i = 0; (i < migrants.getCount()) && (rank > 0); i++, rank--)
+            {
+                final Snake snake = snakes.get(rank);
+                snake.getBrain().setState(new NetworkState(layerSizes, migrants.getGenome(i)));
+                snake.assignFitness(migrants.getFitness(i));
+            }
+        }
+
+        // note, the sort is stable, so a local parent is ranked ahead of an immigrant with an equal fitness
+        //
+        snakes.subList(0, parentCount).sort((Snake s1, Snake s2) -> Long.compare(s2.getFitness(), s1.getFitness()));
+        selectParents();
+
+        // rewrite any checkpoint written by survive(), so that a resumed island includes its immigrants
+        //
+        checkpointIfDue();
+    }
+
+    // restores the state saved by checkpoint(), the next spawn() continues exactly as the original run would have
+    // note, only the best snake and the selected mates are rebuilt, i.e. the parents of the next generation
+    //
+    public final void resume(final String fileName) throws IOException
+    {
+        if (generation > 0) throw new IllegalStateException("Unable to resume a snake pit that has already evolved, generation: " + generation);
+
+        final long startTime = System.nanoTime();
+        final PopulationCheckpoint checkpoint = PopulationCheckpoint.read(Paths.get(fileName));
+
+        // the parents are never evaluated, so hatch them using a dedicated random source, this leaves the master stream untouched
+        //
+        final RandomSource parentRandom = new XoshiroRandom(0);
+        final int parentCount = Math.min(checkpoint.getPopulationSize(), getSelectionLimit());
+        snakes.clear();
+        for (int rank = 0; rank < parentCount; rank++)
+        {
+            final Snake snake = snakeFactory.getSnakeInstance(parentRandom.nextLong());
+            final NeuralNetwork brain = snake.getBrain();
+            if (rank == 0) checkpoint.verify(snakeFactory, brain.getLayerSizes());
+
+            brain.setState(new NetworkState(checkpoint.getLayerSizes(), checkpoint.getGenome(rank)));
+            snakes.add(snake);
+        }
+
+        bestSnake = snakes.get(0);
+        selectedMates.clear();
+        for (int rank = 1; rank < parentCount; rank++) selectedMates.add(snakes.get(rank));
+
+        generation = checkpoint.getGeneration();
+        highScore = checkpoint.getHighScore();
+        random.setState(checkpoint.getRandomState());
+
+        final long elapsedTime = (System.nanoTime() - startTime) / 1000000;
+        logger.info("Resumed from " + fileName + " at generation #" + generation + ", best fitness: " + checkpoint.getFitness(0) + ", high score: " + highScore + " (" + elapsedTime + " ms)");
+    }
+
     public final void spawn()
     {
         if ((generation > 0) && (selectedMates.size() == 0)) throw new IllegalArgumentException("Unable to spawn generation #" + generation + " without parents");
 
-        snakes.clear();
+        if (metrics != null) metrics.beginGeneration();
+        final long startTime = System.nanoTime();
+
         if (generation == 0)
         {
             // create the first generation of snakes with random DNA
             //
+            snakes.clear();
             for (int i = 0; i < populationSize; i++)
             {
-                final Snake snake = snakeFactory.getSnakeInstance();
+                final Snake snake = snakeFactory.getSnakeInstance(random.nextLong());
                 final NeuralNetwork brain = snake.getBrain();
-                brain.setRandomState();
+                brain.setRandomState(random);
                 snakes.add(snake);
             }
         }
         else
         {
-            // always add the fittest parent to the next population
+            // the offspring reuse the snakes in the spare pool, i.e. the generation before last, the parents are left untouched
             //
-            snakes.add(bestSnake);
-            if (snakes.size() < populationSize)
-            {
-                while (true)
-                {
-                    final Snake mate = selectedMates.get(random.nextInt(selectedMates.size()));
-                    final Snake[] offspringSnakes = crossover(bestSnake, mate);
-
-                    snakes.add(offspringSnakes[0]);
-                    if (snakes.size() == populationSize) break;
+            // always add a clone of the fittest parent to the next population, i.e. it gets re-evaluated as a newly hatched snake
+            //
+            final Snake elite = getSpareSnake(0);
+            elite.reset(random.nextLong());
+            elite.getBrain().setState(bestSnake.getBrain().getState());
 
-                    snakes.add(offspringSnakes[1]);
-                    if (snakes.size() == populationSize) break;
-                }
+            int offspringCount = 1;
+            while (offspringCount < populationSize)
+            {
+                // note, the son is always bred, so that the random draws are the same regardless of the population size
+                //
+                final Snake mate = selectedMates.get(random.nextInt(selectedMates.size()));
+                final Snake daughter = getSpareSnake(offspringCount++);
+                final Snake son = (offspringCount < populationSize) ? getSpareSnake(offspringCount++) : null;
+                final long crossoverStartTime = (metrics != null) ? System.nanoTime() : 0L;
+                crossover(bestSnake, mate, daughter, son);
+                if (metrics != null) metrics.record(Phase.Crossover, System.nanoTime() - crossoverStartTime);
             }
+
+            // the offspring become the population and the parents become the spare pool
+            //
+            final List<Snake> parents = snakes;
+            snakes = spareSnakes;
+            spareSnakes = parents;
         }
 
         generation++;
+        if (metrics != null) metrics.record(Phase.Spawn, System.nanoTime() - startTime);
     }
 
     public final void survive()
     {
-        for (final Snake snake : snakes) snake.survive();
-
-        // sort the snakes by fitness
+        // the episodes for this generation are drawn before the evaluation, so are independent of the evaluation order
         //
-        snakes.sort((Snake s1, Snake s2) -> Long.compare(s2.getFitness(), s1.getFitness())); 
+        if (episodes != null) episodes.generate(random);
+        if (selectionCutoff != null) selectionCutoff.reset();
+        for (final Snake snake : snakes)
+        {
+            snake.setEpisodes(episodes);
+            snake.setSelectionCutoff(selectionCutoff);
+        }
+
+        switch (recordingMode)
+        {
+            case AllSnakes:
+                for (final Snake snake : snakes) snake.enableRecording();
+                break;
+
+            case ChampionReplay:
+                break;
 
-        // clone the best snake, gets propagated to the next generation and used during crossover
+            default:
+                throw new IllegalArgumentException("Unable to evaluate the snakes, bad RecordingMode enum");
+        }
+
+        // note, each snake only draws from its own random source, so the evaluation order has no effect on the results
+        //       the pool's invoke() will not return until every slice has completed, i.e. it acts as the barrier before the sort
         //
-        final Snake snake = snakes.get(0);
-        final NetworkState state = snake.getBrain().getState();
-        bestSnake = snakeFactory.getSnakeInstance();
-        bestSnake.getBrain().setState(state);
-        animationSnake = snake;
+        final long evaluationStartTime = System.nanoTime();
+        if (evaluationPool == null)
+        {
+            for (int from = 0; from < snakes.size(); from += EVALUATION_SLICE_SIZE) evaluate(from, Math.min(snakes.size(), from + EVALUATION_SLICE_SIZE));
+        }
+        else
+        {
+            evaluationPool.invoke(new SurviveTask(0, snakes.size()));
+        }
 
-        // select the top 1% as mates
+        if (metrics != null) metrics.record(Phase.Evaluate, System.nanoTime() - evaluationStartTime);
+
+        // sort the snakes by fitness, the sort is stable and so deterministic for equal fitness values
         //
-        selectedMates.clear();
-        final int selectionLimit = 1 + (1 * populationSize / 100);
-        for (int i = 1; i < selectionLimit; i++) selectedMates.add(snakes.get(i));
+        final long sortStartTime = System.nanoTime();
+        snakes.sort((Snake s1, Snake s2) -> Long.compare(s2.getFitness(), s1.getFitness())); 
+
+        selectParents();
+        if (metrics != null) metrics.record(Phase.Sort, System.nanoTime() - sortStartTime);
+
+        long moves = 0, prunedMoves = 0;
+        if ((selectionCutoff != null) || (metrics != null))
+        {
+            for (final Snake snake : snakes)
+            {
+                moves += snake.getMoveCount();
+                prunedMoves += snake.getPrunedMoveCount();
+            }
+        }
+
+        if (selectionCutoff != null) prunedMoveFraction = (double)prunedMoves / (double)(moves + prunedMoves);
+
+        final Snake snake = bestSnake;
+        final long replayStartTime = System.nanoTime();
+        animationSnake = (recordingMode == RecordingMode.AllSnakes) ? snake : replay(snake);
+        if ((metrics != null) && (recordingMode == RecordingMode.ChampionReplay)) metrics.record(Phase.Replay, System.nanoTime() - replayStartTime);
 
         // report best snake stats
         //
@@ -121,16 +413,17 @@ public class SnakePit
 
         // update the evolution progress log
         //
-        final StringBuffer csv = new StringBuffer();
-        csv.append(generation);
-        csv.append(",");
-        csv.append(animationSnake.getFitness());
-        csv.append(",");
-        csv.append(animationSnake.getLength());
-        csv.append(",");
-        csv.append(animationSnake.getMovements().size());
-        csvEvolutionProgressLogger.println(csv.toString());
-        csvEvolutionProgressLogger.fsync();
+        // note, the generation's metrics are complete at this point, except for any checkpoint
+        //
+        if (metrics != null) metrics.endGeneration(generation, snakes.size(), moves);
+        if (metricsCsvColumns)
+        {
+            csvEvolutionProgressLogger.log(metrics.getCsvColumns(generation, animationSnake.getFitness(), animationSnake.getLength(), animationSnake.getTrace().getMoveCount()));
+        }
+        else
+        {
+            csvEvolutionProgressLogger.log(generation, animationSnake.getFitness(), animationSnake.getLength(), animationSnake.getTrace().getMoveCount());
+        }
 
         // log results
         //
@@ -140,7 +433,7 @@ public class SnakePit
         sb.append(", length: ");
         sb.append(animationSnake.getLength());
         sb.append(", moves: ");
-        sb.append(animationSnake.getMovements().size());
+        sb.append(animationSnake.getTrace().getMoveCount());
         sb.append(", score: ");
         sb.append(animationSnake.getFitness());
         sb.append(" [");
@@ -149,87 +442,187 @@ public class SnakePit
         sb.append("%, ");
         sb.append(highScore);
         sb.append("]");
+        if (selectionCutoff != null)
+        {
+            sb.append(", racing saved ");
+            sb.append(String.format("%.1f", 100.0 * prunedMoveFraction));
+            sb.append("% of the moves");
+        }
+
         logger.info(sb.toString());
+
+        checkpointIfDue();
     }
 
-    public final Snake getAnimationSnake()
+    private final void checkpointIfDue()
     {
-        return animationSnake;
+        if ((checkpointFileName != null) && ((generation % checkpointInterval) == 0))
+        {
+            try
+            {
+                final long startTime = System.nanoTime();
+                checkpoint(checkpointFileName);
+                if (metrics != null) metrics.record(Phase.Checkpoint, System.nanoTime() - startTime);
+            }
+            catch (IOException ex)
+            {
+                logger.error("Unable to write the checkpoint " + checkpointFileName + ", continuing...", ex);
+            }
+        }
     }
 
-    private final Snake[] crossover(final Snake mother, final Snake father)
+    // re-simulates the snake's survival episode with recording enabled, i.e. this snake pit's replay snake reset() to the same genome and seed
+    //
+    // note, the replay snake is reused every generation, each recorded episode is in a new SnakeTrace so the previous champion's trace,
+    //       which may still be animating, is never modified
+    //
+    private final Snake replay(final Snake snake)
     {
-        final NetworkState stateMother = mother.getBrain().getState();
-        final double[][][] weightsMother = stateMother.getWeights();
-        final double[][] biasMother = stateMother.getBias();
+        if (replaySnake == null)
+        {
+            replaySnake = snakeFactory.getSnakeInstance(snake.getSeed());
+        }
+        else
+        {
+            replaySnake.reset(snake.getSeed());
+        }
 
-        final NetworkState stateFather = father.getBrain().getState();
-        final double[][][] weightsFather = stateFather.getWeights();
-        final double[][] biasFather = stateFather.getBias();
+        final Snake replay = replaySnake;
+        replay.getBrain().setState(snake.getBrain().getState());
+        replay.setEpisodes(episodes);
+        replay.enableRecording();
+        replay.survive();
 
-        final int pivot = random.nextInt(stateMother.getDimension());
-        int stateCount = 0;
+        if (replay.getFitness() != snake.getFitness()) throw new IllegalStateException("The replayed snake's fitness differs from the evaluated fitness, replayed: " + replay.getFitness() + ", evaluated: " + snake.getFitness());
 
-        final double[][][] weightsDaughter = new double[weightsMother.length][][];
-        final double[][] biasDaughter = new double[weightsMother.length][];
-        final double[][][] weightsSon = new double[weightsMother.length][][];
-        final double[][] biasSon = new double[weightsMother.length][];
+        return replay;
+    }
+
+    // returns the spare pool's snake, growing the pool on demand, e.g. for the first offspring or after resume()
+    // note, the returned snake must be reset() before use
+    //
+    private final Snake getSpareSnake(final int index)
+    {
+        if (index < spareSnakes.size()) return spareSnakes.get(index);
 
-        // note, relies on the weights[] and bias[] arrays have the same "network" structure
+        final Snake snake = snakeFactory.getSnakeInstance(0);
+        spareSnakes.add(snake);
+        return snake;
+    }
+
+    // the best snake gets cloned into the next generation and is used during crossover, see spawn()
+    // note, the snakes must be ranked
+    //
+    private final void selectParents()
+    {
+        bestSnake = snakes.get(0);
+
+        // select the top 1% as mates
         //
-        for (int layer = 0; layer < weightsMother.length; layer++)
-        {
-            weightsDaughter[layer] = new double[weightsMother[layer].length][];
-            biasDaughter[layer] = new double[weightsMother[layer].length];
-            weightsSon[layer] = new double[weightsMother[layer].length][];
-            biasSon[layer] = new double[weightsMother[layer].length];
+        selectedMates.clear();
+        final int selectionLimit = Math.min(getSelectionLimit(), snakes.size());
+        for (int i = 1; i < selectionLimit; i++) selectedMates.add(snakes.get(i));
+    }
 
-            for (int neuron = 0; neuron < weightsMother[layer].length; neuron++)
-            {
-                weightsDaughter[layer][neuron] = new double[weightsMother[layer][neuron].length];
-                weightsSon[layer][neuron] = new double[weightsMother[layer][neuron].length];
-                for (int i = 0; i < weightsMother[layer][neuron].length; i++)
-                {
-                    if (stateCount < pivot)
-                    {
-                        weightsDaughter[layer][neuron][i] = mutate(weightsMother[layer][neuron][i]);
-                        weightsSon[layer][neuron][i] = mutate(weightsFather[layer][neuron][i]);
-                    }
-                    else
-                    {
-                        weightsDaughter[layer][neuron][i] = mutate(weightsFather[layer][neuron][i]);
-                        weightsSon[layer][neuron][i] = mutate(weightsMother[layer][neuron][i]);
-                    }
-
-                    stateCount++;
-                }
+    // i.e. the best snake plus the top 1% as mates
+    //
+    private final int getSelectionLimit()
+    {
+        return 1 + (1 * populationSize / 100);
+    }
 
-                if (stateCount < pivot)
-                {
-                    biasDaughter[layer][neuron] = mutate(biasMother[layer][neuron]);
-                    biasSon[layer][neuron] = mutate(biasFather[layer][neuron]);
-                }
-                else
+    private final void evaluate(final int from, final int to)
+    {
+        switch (evaluationMode)
+        {
+            case PerSnake:
+                for (int i = from; i < to; i++)
                 {
-                    biasDaughter[layer][neuron] = mutate(biasFather[layer][neuron]);
-                    biasSon[layer][neuron] = mutate(biasMother[layer][neuron]);
+                    final long startTime = (metrics != null) ? System.nanoTime() : 0L;
+                    snakes.get(i).survive();
+                    if (metrics != null) metrics.record(Phase.Survive, System.nanoTime() - startTime);
                 }
+                break;
 
-                stateCount++;
-            }
+            case Lockstep:
+                lockstepEvaluators.get().survive(snakes, from, to);
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unable to evaluate the snakes, bad EvaluationMode enum");
+        }
+    }
+
+    public final Snake getAnimationSnake()
+    {
+        return animationSnake;
+    }
+
+    public final void shutdown()
+    {
+        if (evaluationPool != null) evaluationPool.shutdown();
+    }
+
+    // breeds the daughter and son, both are reset() and given their new genomes in place
+    //
+    // notes 1, package private for the benchmarks
+    //       2, the son may be null, in which case its genome and seed are still drawn but discarded
+    //
+    final void crossover(final Snake mother, final Snake father, final Snake daughter, final Snake son)
+    {
+        final NetworkState stateMother = mother.getBrain().getState();
+        final NetworkState stateFather = father.getBrain().getState();
+        final int dimension = stateMother.getDimension();
+
+        // the offspring genomes are bred in scratch arrays owned by this snake pit and then copied into the offspring's brains
+        // note, float genomes are bred in double, i.e. the parents are widened here and the offspring narrowed by setState()
+        //
+        if ((genomeDaughter == null) || (genomeDaughter.length != dimension))
+        {
+            genomeDaughter = new double[dimension];
+            genomeSon = new double[dimension];
+            widenedMother = new double[dimension];
+            widenedFather = new double[dimension];
+            stateDaughter = new NetworkState(stateMother.getLayerSizes(), genomeDaughter);
+            stateSon = new NetworkState(stateMother.getLayerSizes(), genomeSon);
         }
 
-        final Snake daughter = snakeFactory.getSnakeInstance();
-        final NeuralNetwork daughterBrain = daughter.getBrain();
-        final NetworkState daughterState = new NetworkState(weightsDaughter, biasDaughter, stateMother.getDimension());
-        daughterBrain.setState(daughterState);
+        final double[] genomeMother = (stateMother.getPrecision() == NetworkPrecision.Double) ? stateMother.getGenome() : widen(stateMother, widenedMother);
+        final double[] genomeFather = (stateFather.getPrecision() == NetworkPrecision.Double) ? stateFather.getGenome() : widen(stateFather, widenedFather);
 
-        final Snake son = snakeFactory.getSnakeInstance();
-        final NeuralNetwork sonBrain = son.getBrain();
-        final NetworkState sonState = new NetworkState(weightsSon, biasSon, stateMother.getDimension());
-        sonBrain.setState(sonState);
+        final int pivot = random.nextInt(dimension);
 
-        return new Snake[] {daughter, son};
+        // as the genomes are contiguous, the crossover is just a pair of bulk copies either side of the pivot
+        //
+        System.arraycopy(genomeMother, 0, genomeDaughter, 0, pivot);
+        System.arraycopy(genomeFather, pivot, genomeDaughter, pivot, dimension - pivot);
+
+        System.arraycopy(genomeFather, 0, genomeSon, 0, pivot);
+        System.arraycopy(genomeMother, pivot, genomeSon, pivot, dimension - pivot);
+
+        // note, interleaved so that the random draws are made in the same order as a gene by gene crossover
+        //
+        for (int i = 0; i < dimension; i++)
+        {
+            genomeDaughter[i] = mutate(genomeDaughter[i]);
+            genomeSon[i] = mutate(genomeSon[i]);
+        }
+
+        daughter.reset(random.nextLong());
+        daughter.getBrain().setState(stateDaughter);
+
+        final long sonSeed = random.nextLong();
+        if (son != null)
+        {
+            son.reset(sonSeed);
+            son.getBrain().setState(stateSon);
+        }
+    }
+
+    private static final double[] widen(final NetworkState state, final double[] genome)
+    {
+        state.copyGenome(genome);
+        return genome;
     }
 
     // FIXME! remove the magic gaussian divisor...
@@ -256,4 +649,32 @@ public class SnakePit
 
         return weight;
     }
+
+    // recursively splits the population into slices, each slice is evaluated on a single fork-join worker thread
+    //
+    private final class SurviveTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int from, to;
+
+        private SurviveTask(final int from, final int to)
+        {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected final void compute()
+        {
+            if ((to - from) <= EVALUATION_SLICE_SIZE)
+            {
+                evaluate(from, to);
+                return;
+            }
+
+            final int middle = (from + to) >>> 1;
+            invokeAll(new SurviveTask(from, middle), new SurviveTask(middle, to));
+        }
+    }
 }
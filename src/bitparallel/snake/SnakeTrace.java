@@ -0,0 +1,163 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake;
+
+import java.util.Arrays;
+
+//
+// a compact record of a snake's survival episode, enough to replay it for animation
+//
+//   hatchling, the tail cell, heading and length of the (always straight) hatchling, the head being the last segment
+//   moves, the absolute heading of each step taken by the head, 2 bits each and packed 32 to a long
+//   food, each food location as a packed (y * gridWidth + x) cell index, in the order it was placed
+//
+// notes 1, both species only ever step the head by a single cell north, east, south or west, so the absolute heading is
+//          sufficient regardless of whether the snake's movements are absolute or relative
+//       2, the arrays are grown on demand by doubling, i.e. nothing is allocated per move
+//       3, decoded lazily by the caller, e.g. SnakeViewer, using getMove() and the heading deltas below
+//
+
+public class SnakeTrace
+{
+    public static final int NORTH = 0;
+    public static final int EAST = 1;
+    public static final int SOUTH = 2;
+    public static final int WEST = 3;
+
+    private static final int[] HEADING_DX = {0, 1, 0, -1};
+    private static final int[] HEADING_DY = {-1, 0, 1, 0};
+
+    private static final int MOVES_INITIAL_CAPACITY = 8;
+    private static final int FOOD_INITIAL_CAPACITY = 8;
+
+    private final int gridWidth;
+    private int hatchlingTail, hatchlingHeading, hatchlingLength;
+    private long[] moves;
+    private int[] food;
+    private int moveCount, foodCount;
+
+    public SnakeTrace(final int gridWidth)
+    {
+        this.gridWidth = gridWidth;
+
+        moves = new long[MOVES_INITIAL_CAPACITY];
+        food = new int[FOOD_INITIAL_CAPACITY];
+        moveCount = 0;
+        foodCount = 0;
+    }
+
+    //
+    // methods below are used to record the episode
+    //
+
+    public final void setHatchling(final int tailCell, final int heading, final int length)
+    {
+        hatchlingTail = tailCell;
+        hatchlingHeading = heading;
+        hatchlingLength = length;
+    }
+
+    // note, (dx, dy) must be a single step north, east, south or west
+    //
+    public final void addMove(final int dx, final int dy)
+    {
+        final int heading = (dy < 0) ? NORTH : ((dx > 0) ? EAST : ((dy > 0) ? SOUTH : WEST));
+
+        final int word = moveCount >>> 5;
+        if (word == moves.length) moves = Arrays.copyOf(moves, moves.length << 1);
+
+        moves[word] |= ((long)heading << ((moveCount & 31) << 1));
+        moveCount++;
+    }
+
+    public final void addFood(final int x, final int y)
+    {
+        if (foodCount == food.length) food = Arrays.copyOf(food, food.length << 1);
+        food[foodCount++] = (y * gridWidth) + x;
+    }
+
+    //
+    // methods below are used to replay the episode
+    //
+
+    public final int getHatchlingLength()
+    {
+        return hatchlingLength;
+    }
+
+    public final int getHatchlingHeading()
+    {
+        return hatchlingHeading;
+    }
+
+    // note, index 0 is the tail, getHatchlingLength() - 1 is the head
+    //
+    public final int getHatchlingX(final int index)
+    {
+        return (hatchlingTail % gridWidth) + (index * HEADING_DX[hatchlingHeading]);
+    }
+
+    public final int getHatchlingY(final int index)
+    {
+        return (hatchlingTail / gridWidth) + (index * HEADING_DY[hatchlingHeading]);
+    }
+
+    public final int getMoveCount()
+    {
+        return moveCount;
+    }
+
+    // returns the heading of the given move, NORTH, EAST, SOUTH or WEST
+    //
+    public final int getMove(final int index)
+    {
+        return (int)(moves[index >>> 5] >>> ((index & 31) << 1)) & 3;
+    }
+
+    public final int getFoodCount()
+    {
+        return foodCount;
+    }
+
+    public final int getFoodX(final int index)
+    {
+        return food[index] % gridWidth;
+    }
+
+    public final int getFoodY(final int index)
+    {
+        return food[index] / gridWidth;
+    }
+
+    public static final int getDx(final int heading)
+    {
+        return HEADING_DX[heading];
+    }
+
+    public static final int getDy(final int heading)
+    {
+        return HEADING_DY[heading];
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuffer sb = new StringBuffer();
+        sb.append("Hatchling: [");
+        sb.append(getHatchlingX(0));
+        sb.append(", ");
+        sb.append(getHatchlingY(0));
+        sb.append("], Heading: ");
+        sb.append(hatchlingHeading);
+        sb.append(", Length: ");
+        sb.append(hatchlingLength);
+        sb.append(", Moves: ");
+        sb.append(moveCount);
+        sb.append(", Food: ");
+        sb.append(foodCount);
+
+        return sb.toString();
+    }
+}
@@ -4,12 +4,13 @@
 
 package bitparallel.snake.geometry;
 
-import bitparallel.snake.PsuedoRandom;
+import bitparallel.snake.random.RandomSource;
 
 //
 // converts the three FORWARD, LEFT and RIGHT neural direction amplitudes to appropriate [-1, 0, +1] (dx, dy) offsets
 //
 // notes 1, LEFT / RIGHT conflicts are resolved randomly, also randomly resolved should these coincide with FORWARD
+//          the owning snake's RandomSource is used, keeping the snake's evaluation reproducible
 //       2, the inherited translate() method delegates to an existing PointDeltaXY instance, as used by ForwardOnlySnakes
 //          this then generates appropriate absolute dx / dy deltas using the computed movement deltas and the absolute deltas
 //          held within the PointDeltaXY instance, generating a new abd translated PointDeltaXY instance
@@ -17,9 +18,8 @@ import bitparallel.snake.PsuedoRandom;
 
 public class ForwardOnlyMovement extends Movement
 {
-    public ForwardOnlyMovement(final double forward, final double left, final double right)
+    public ForwardOnlyMovement(final double forward, final double left, final double right, final RandomSource random)
     {
-        final PsuedoRandom random = PsuedoRandom.INSTANCE;
         final double max = Math.max(Math.max(left, right), forward);
 
         final boolean isLeft = (left == max);
@@ -101,9 +101,9 @@ public class ForwardOnlyMovement extends Movement
 
     // takes a 'vision vector'
     //
-    public ForwardOnlyMovement(final double[] move)
+    public ForwardOnlyMovement(final double[] move, final RandomSource random)
     {
-        this(move[0], move[1], move[2]);
+        this(move[0], move[1], move[2], random);
     }
 
     @Override
@@ -4,21 +4,20 @@
 
 package bitparallel.snake.geometry;
 
-import bitparallel.snake.PsuedoRandom;
+import bitparallel.snake.random.RandomSource;
 
 //
 // converts four neural direction amplitudes to [-1, 0, +1] (dx, dy) offsets
 //
 // notes 1. diagonal movement is not allowed
-//       2. direction conflicts are resolved randomly
+//       2. direction conflicts are resolved randomly, using the owning snake's RandomSource
 //       3, +dx == RIGHT, -dx == LEFT, +dy == DOWN, -dy == UP, i.e. absolute grid directions
 //       4, the inherited translate() delegates to a PointXY instance (as used by FullMovementSnakes) that simply adds these absolute direction deltas
 
 public class FullMovement extends Movement
 {
-    public FullMovement(final double left, final double right, final double up, final double down)
+    public FullMovement(final double left, final double right, final double up, final double down, final RandomSource random)
     {
-        final PsuedoRandom random = PsuedoRandom.INSTANCE;
         final double max = Math.max(Math.max(Math.max(left, right), up), down);
 
         dx = 0;
@@ -75,9 +74,9 @@ public class FullMovement extends Movement
 
     // takes a 'vision vector'
     //
-    public FullMovement(final double[] move)
+    public FullMovement(final double[] move, final RandomSource random)
     {
-        this(move[0], move[1], move[2], move[3]);
+        this(move[0], move[1], move[2], move[3], random);
     }
 
     @Override
@@ -0,0 +1,93 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake.island;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+import bitparallel.snake.MigrantGenomes;
+import bitparallel.snake.SnakePit;
+
+//
+// one island of an island model evolution, i.e. an independent snake pit that periodically swaps its fittest genomes with its neighbours
+//
+// notes 1, every migrationInterval generations, once the generation has been evaluated, the island's fittest migrationSize genomes
+//          are sent to its target islands and the immigrants from its source islands replace its weakest parents, see SnakePit.immigrate()
+//       2, the immigrants keep the fitness evaluated on their home island, they are re-evaluated as and when their offspring are
+//       3, each island has its own seed, so given the same seeds and configuration the islands always produce the same results
+//          regardless of whether they run within one JVM or many
+//
+
+public class Island
+{
+    private static final Logger logger = LogManager.getLogger(Island.class);
+
+    private final int islandIndex;
+    private final SnakePit snakePit;
+    private final IslandNetwork network;
+    private final int migrationInterval, migrationSize;
+
+    public Island(final int islandIndex, final SnakePit snakePit, final IslandNetwork network, final int migrationInterval, final int migrationSize)
+    {
+        if (migrationInterval < 1) throw new IllegalArgumentException("The migration interval must be at least 1, value: " + migrationInterval);
+        if (migrationSize < 1) throw new IllegalArgumentException("The migration size must be at least 1, value: " + migrationSize);
+
+        this.islandIndex = islandIndex;
+        this.snakePit = snakePit;
+        this.network = network;
+        this.migrationInterval = migrationInterval;
+        this.migrationSize = migrationSize;
+    }
+
+    public final int getIslandIndex()
+    {
+        return islandIndex;
+    }
+
+    public final SnakePit getSnakePit()
+    {
+        return snakePit;
+    }
+
+    // spawns and evaluates the next generation, then migrates should it be due
+    //
+    public final void evolve() throws IOException
+    {
+        snakePit.spawn();
+        snakePit.survive();
+
+        if ((snakePit.getGeneration() % migrationInterval) == 0) migrate();
+    }
+
+    private final void migrate() throws IOException
+    {
+        final MigrantGenomes emigrants = snakePit.getEmigrants(islandIndex, migrationSize);
+        final List<MigrantGenomes> immigrants = network.exchange(emigrants);
+        snakePit.immigrate(immigrants);
+
+        if (logger.isDebugEnabled())
+        {
+            final StringBuffer sb = new StringBuffer();
+            sb.append("Island #");
+            sb.append(islandIndex);
+            sb.append(" generation #");
+            sb.append(snakePit.getGeneration());
+            sb.append(", emigrants: ");
+            sb.append(emigrants);
+            sb.append(", immigrants: ");
+            sb.append(immigrants);
+            logger.debug(sb.toString());
+        }
+    }
+
+    public final void shutdown()
+    {
+        network.close();
+        snakePit.shutdown();
+    }
+}
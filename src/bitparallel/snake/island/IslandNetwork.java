@@ -0,0 +1,249 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake.island;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+import bitparallel.snake.MigrantGenomes;
+
+//
+// the TCP connections between an island and its neighbours, as dictated by the migration topology
+//
+// protocol, each connection is opened by the sending island and starts with a hello, i.e. int magic "SNKI", int version and int source island
+//           then carries a MigrantGenomes payload per migration, see MigrantGenomes for the wire format
+//
+// notes 1, the islands are identified by their index into the address list, every island must be given the same list
+//       2, each inbound connection has its own reader thread, so a sender never blocks on a full socket buffer whilst its
+//          receiver is itself sending, i.e. a ring can't deadlock regardless of the payload size
+//       3, exchange() is a barrier, it returns once the immigrants from every source island have arrived, in source island order
+//          so the islands stay in step and, given the same seeds, always produce the same results
+//
+
+public class IslandNetwork
+{
+    private static final Logger logger = LogManager.getLogger(IslandNetwork.class);
+
+    private static final int MAGIC = 0x534e4b49;
+    private static final int VERSION = 1;
+    private static final long CONNECT_TIMEOUT = 60000;
+    private static final long CONNECT_RETRY_INTERVAL = 100;
+
+    // placed on an inbound queue should its connection fail
+    //
+    private static final MigrantGenomes DISCONNECTED = new MigrantGenomes(-1, -1, new int[0], new long[0], new double[0][]);
+
+    private final int islandIndex;
+    private final List<InetSocketAddress> islandAddresses;
+    private final int[] targets, sources;
+    private final List<Socket> sockets;
+    private final DataOutputStream[] outbound;
+    private final List<BlockingQueue<MigrantGenomes>> inbound;
+    private ServerSocket serverSocket;
+    private volatile boolean closed;
+
+    public IslandNetwork(final int islandIndex, final List<InetSocketAddress> islandAddresses, final MigrationTopology topology)
+    {
+        final int islandCount = islandAddresses.size();
+        if ((islandIndex < 0) || (islandIndex >= islandCount)) throw new IllegalArgumentException("The island index is not in the range [0, " + islandCount + "), value: " + islandIndex);
+
+        this.islandIndex = islandIndex;
+        this.islandAddresses = islandAddresses;
+
+        switch (topology)
+        {
+            case Ring:
+                targets = (islandCount > 1) ? new int[] {(islandIndex + 1) % islandCount} : new int[0];
+                sources = (islandCount > 1) ? new int[] {(islandIndex + islandCount - 1) % islandCount} : new int[0];
+                break;
+
+            case AllToAll:
+                targets = new int[islandCount - 1];
+                for (int i = 0, j = 0; i < islandCount; i++) if (i != islandIndex) targets[j++] = i;
+                sources = targets.clone();
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unable to connect the island, bad MigrationTopology enum");
+        }
+
+        sockets = new ArrayList<Socket>();
+        outbound = new DataOutputStream[targets.length];
+        inbound = new ArrayList<BlockingQueue<MigrantGenomes>>();
+        for (int i = 0; i < sources.length; i++) inbound.add(new LinkedBlockingQueue<MigrantGenomes>());
+        closed = false;
+    }
+
+    // listens on this island's port, connects to the target islands, then waits for the source islands to connect
+    // note, the other islands may not have started yet, so the outbound connections are retried for up to CONNECT_TIMEOUT ms
+    //
+    public final void connect() throws IOException
+    {
+        serverSocket = new ServerSocket(islandAddresses.get(islandIndex).getPort());
+        logger.info("Island #" + islandIndex + " listening on port " + serverSocket.getLocalPort() + ", targets: " + targets.length + ", sources: " + sources.length);
+
+        for (int i = 0; i < targets.length; i++)
+        {
+            final Socket socket = connect(islandAddresses.get(targets[i]));
+            socket.setTcpNoDelay(true);
+            sockets.add(socket);
+
+            outbound[i] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            outbound[i].writeInt(MAGIC);
+            outbound[i].writeInt(VERSION);
+            outbound[i].writeInt(islandIndex);
+            outbound[i].flush();
+        }
+
+        for (int i = 0; i < sources.length; i++)
+        {
+            final Socket socket = serverSocket.accept();
+            sockets.add(socket);
+
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            if (in.readInt() != MAGIC) throw new IOException("Not a snake island connection: " + socket.getRemoteSocketAddress());
+
+            final int version = in.readInt();
+            if (version != VERSION) throw new IOException("Unsupported island protocol version: " + version + ", requires: " + VERSION);
+
+            final int sourceIsland = in.readInt();
+            final int slot = indexOf(sources, sourceIsland);
+            if (slot < 0) throw new IOException("Unexpected connection from island #" + sourceIsland);
+
+            final Thread reader = new Thread(() -> read(sourceIsland, in, inbound.get(slot)), "island-" + islandIndex + "-from-" + sourceIsland);
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        logger.info("Island #" + islandIndex + " connected");
+    }
+
+    // sends the emigrants to every target island and returns the immigrants from every source island, ordered by source island
+    //
+    public final List<MigrantGenomes> exchange(final MigrantGenomes emigrants) throws IOException
+    {
+        for (final DataOutputStream out : outbound)
+        {
+            emigrants.write(out);
+            out.flush();
+        }
+
+        final List<MigrantGenomes> immigrants = new ArrayList<MigrantGenomes>();
+        for (int i = 0; i < sources.length; i++)
+        {
+            final MigrantGenomes migrants;
+            try
+            {
+                migrants = inbound.get(i).take();
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted whilst waiting for the immigrants from island #" + sources[i]);
+            }
+
+            if (migrants == DISCONNECTED) throw new IOException("Lost the connection from island #" + sources[i]);
+            if (migrants.getGeneration() != emigrants.getGeneration()) throw new IOException("Island #" + sources[i] + " is out of step, generation: " + migrants.getGeneration() + ", expected: " + emigrants.getGeneration());
+
+            immigrants.add(migrants);
+        }
+
+        return immigrants;
+    }
+
+    public final void close()
+    {
+        closed = true;
+        for (final Socket socket : sockets) close(socket);
+
+        try
+        {
+            if (serverSocket != null) serverSocket.close();
+        }
+        catch (IOException ex)
+        {
+            logger.warn("Unable to close the island #" + islandIndex + " server socket, ignored...");
+        }
+    }
+
+    // note, the source island closes its connection once it has finished, i.e. an end of stream is only an error should exchange() still require its immigrants
+    //
+    private final void read(final int sourceIsland, final DataInputStream in, final BlockingQueue<MigrantGenomes> queue)
+    {
+        try
+        {
+            while (true) queue.add(MigrantGenomes.read(in));
+        }
+        catch (EOFException ex)
+        {
+            logger.debug("Island #" + islandIndex + ", island #" + sourceIsland + " closed its connection");
+            queue.add(DISCONNECTED);
+        }
+        catch (IOException ex)
+        {
+            if (!closed) logger.error("Island #" + islandIndex + " lost the connection from island #" + sourceIsland, ex);
+            queue.add(DISCONNECTED);
+        }
+    }
+
+    private static final Socket connect(final InetSocketAddress address) throws IOException
+    {
+        final long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT;
+        while (true)
+        {
+            try
+            {
+                return new Socket(address.getHostString(), address.getPort());
+            }
+            catch (ConnectException ex)
+            {
+                if (System.currentTimeMillis() > deadline) throw new IOException("Unable to connect to island at " + address, ex);
+            }
+
+            try
+            {
+                Thread.sleep(CONNECT_RETRY_INTERVAL);
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted whilst connecting to island at " + address);
+            }
+        }
+    }
+
+    private final void close(final Socket socket)
+    {
+        try
+        {
+            socket.close();
+        }
+        catch (IOException ex)
+        {
+            logger.warn("Unable to close the island socket " + socket + ", ignored...");
+        }
+    }
+
+    private static final int indexOf(final int[] values, final int value)
+    {
+        for (int i = 0; i < values.length; i++) if (values[i] == value) return i;
+        return -1;
+    }
+}
@@ -0,0 +1,18 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake.island;
+
+//
+// which islands exchange migrants
+//
+//   Ring, each island sends its emigrants to the next island and receives immigrants from the previous island, i.e. island (i + 1) % n
+//   AllToAll, each island sends its emigrants to, and receives immigrants from, every other island
+//
+
+public enum MigrationTopology
+{
+    Ring,
+    AllToAll
+}
@@ -0,0 +1,250 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake.metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+//
+// the instrumentation of a snake pit's evolution, i.e. a LatencyHistogram per Phase plus the throughput, allocation and GC time of
+// each generation, published over JMX as
+//
+//   bitparallel.snake:type=EvolutionMetrics,name=<name>
+//   bitparallel.snake:type=PhaseLatency,name=<name>,phase=<phase>
+//
+// notes 1, a generation runs from SnakePit.spawn() to the logging of its champion in SnakePit.survive(), see beginGeneration()
+//          and endGeneration(), the snakes/sec are over the whole generation and the moves/sec over its Evaluate phase
+//       2, the allocated bytes are summed over every live thread (HotSpot's com.sun.management.ThreadMXBean), a thread that exits
+//          during the generation is missed and without the HotSpot bean they're reported as -1
+//       3, the overhead is two System.nanoTime() calls and a few atomic updates per timed phase (per snake for Survive) plus a walk of
+//          the threads and collectors once per generation, i.e. cheap enough to always be on
+//       4, the generation figures are written by the evolution thread and read by the JMX threads, hence volatile
+//
+
+public class EvolutionMetrics implements EvolutionMetricsMBean
+{
+    public static final String CSV_HEADER = "SpawnMicros,EvaluateMicros,SortMicros,ReplayMicros,SnakesPerSec,MovesPerSec,AllocatedBytes,GcMillis";
+
+    private static final String DOMAIN = "bitparallel.snake";
+
+    private static final Logger logger = LogManager.getLogger(EvolutionMetrics.class);
+
+    private final String name;
+    private final LatencyHistogram[] histograms;
+    private final com.sun.management.ThreadMXBean threadBean;
+    private final List<GarbageCollectorMXBean> gcBeans;
+    private final List<ObjectName> registeredNames;
+    private long generationStartTime, generationStartAllocatedBytes, generationStartGcMillis, generationStartGcCount;
+    private volatile int generation;
+    private volatile double generationMillis, snakesPerSecond, movesPerSecond;
+    private volatile long allocatedBytes, gcMillis, gcCount;
+
+    // note, the name distinguishes the snake pits within a JVM, e.g. each island
+    //
+    public EvolutionMetrics(final String name)
+    {
+        this.name = name;
+
+        histograms = new LatencyHistogram[Phase.values().length];
+        for (int i = 0; i < histograms.length; i++) histograms[i] = new LatencyHistogram();
+
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if ((bean instanceof com.sun.management.ThreadMXBean) && ((com.sun.management.ThreadMXBean)bean).isThreadAllocatedMemorySupported())
+        {
+            threadBean = (com.sun.management.ThreadMXBean)bean;
+            if (!threadBean.isThreadAllocatedMemoryEnabled()) threadBean.setThreadAllocatedMemoryEnabled(true);
+        }
+        else
+        {
+            threadBean = null;
+            logger.info("Thread allocation counters are unavailable, the allocated bytes will not be reported");
+        }
+
+        gcBeans = ManagementFactory.getGarbageCollectorMXBeans();
+        registeredNames = new ArrayList<ObjectName>();
+        reset();
+    }
+
+    public final String getName()
+    {
+        return name;
+    }
+
+    public final LatencyHistogram getHistogram(final Phase phase)
+    {
+        return histograms[phase.ordinal()];
+    }
+
+    public final void record(final Phase phase, final long nanos)
+    {
+        histograms[phase.ordinal()].record(nanos);
+    }
+
+    public final void beginGeneration()
+    {
+        generationStartTime = System.nanoTime();
+        generationStartAllocatedBytes = getAllocatedBytes();
+        generationStartGcMillis = getGcMillis();
+        generationStartGcCount = getGcCount();
+    }
+
+    // note, the moves are those made by every snake in the generation, i.e. over all of their episodes
+    //
+    public final void endGeneration(final int generation, final int snakes, final long moves)
+    {
+        final long generationNanos = System.nanoTime() - generationStartTime;
+        final long evaluationNanos = getHistogram(Phase.Evaluate).getLastNanos();
+
+        generationMillis = generationNanos / 1.0e6;
+        snakesPerSecond = (generationNanos == 0) ? 0.0 : (snakes / (generationNanos / 1.0e9));
+        movesPerSecond = (evaluationNanos == 0) ? 0.0 : (moves / (evaluationNanos / 1.0e9));
+        allocatedBytes = (threadBean == null) ? -1 : Math.max(0L, getAllocatedBytes() - generationStartAllocatedBytes);
+        gcMillis = getGcMillis() - generationStartGcMillis;
+        gcCount = getGcCount() - generationStartGcCount;
+        this.generation = generation;
+    }
+
+    // the supplied columns followed by the columns described by CSV_HEADER for the most recent generation
+    //
+    public final long[] getCsvColumns(final long ... leadingColumns)
+    {
+        final long[] columns = new long[leadingColumns.length + 8];
+        System.arraycopy(leadingColumns, 0, columns, 0, leadingColumns.length);
+
+        int column = leadingColumns.length;
+        columns[column++] = getHistogram(Phase.Spawn).getLastNanos() / 1000L;
+        columns[column++] = getHistogram(Phase.Evaluate).getLastNanos() / 1000L;
+        columns[column++] = getHistogram(Phase.Sort).getLastNanos() / 1000L;
+        columns[column++] = getHistogram(Phase.Replay).getLastNanos() / 1000L;
+        columns[column++] = Math.round(snakesPerSecond);
+        columns[column++] = Math.round(movesPerSecond);
+        columns[column++] = allocatedBytes;
+        columns[column++] = gcMillis;
+
+        return columns;
+    }
+
+    public final int getGeneration()
+    {
+        return generation;
+    }
+
+    public final double getGenerationMillis()
+    {
+        return generationMillis;
+    }
+
+    public final double getSnakesPerSecond()
+    {
+        return snakesPerSecond;
+    }
+
+    public final double getMovesPerSecond()
+    {
+        return movesPerSecond;
+    }
+
+    public final long getAllocatedBytesPerGeneration()
+    {
+        return allocatedBytes;
+    }
+
+    public final long getGcMillisPerGeneration()
+    {
+        return gcMillis;
+    }
+
+    public final long getGcCountPerGeneration()
+    {
+        return gcCount;
+    }
+
+    public final long getTotalGcMillis()
+    {
+        return getGcMillis();
+    }
+
+    // note, the histograms only, the generation figures are replaced by the next generation anyway
+    //
+    public final void reset()
+    {
+        for (final LatencyHistogram histogram : histograms) histogram.reset();
+    }
+
+    // registers this bean and a bean per phase with the platform MBean server, a failure is logged rather than thrown
+    // i.e. the evolution is never stopped by its instrumentation
+    //
+    public final synchronized void register()
+    {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try
+        {
+            final String quotedName = ObjectName.quote(name);
+            register(server, new ObjectName(DOMAIN + ":type=EvolutionMetrics,name=" + quotedName), this);
+            for (final Phase phase : Phase.values()) register(server, new ObjectName(DOMAIN + ":type=PhaseLatency,name=" + quotedName + ",phase=" + phase), getHistogram(phase));
+            logger.info("Registered the evolution metrics MBeans, " + DOMAIN + ":type=EvolutionMetrics,name=" + quotedName);
+        }
+        catch (JMException ex)
+        {
+            logger.warn("Unable to register the evolution metrics MBeans for " + name + ", continuing without them", ex);
+        }
+    }
+
+    public final synchronized void unregister()
+    {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (final ObjectName objectName : registeredNames)
+        {
+            try
+            {
+                server.unregisterMBean(objectName);
+            }
+            catch (JMException ex)
+            {
+                logger.warn("Unable to unregister the MBean " + objectName + ", ignored...");
+            }
+        }
+
+        registeredNames.clear();
+    }
+
+    private final void register(final MBeanServer server, final ObjectName objectName, final Object bean) throws JMException
+    {
+        server.registerMBean(bean, objectName);
+        registeredNames.add(objectName);
+    }
+
+    private final long getAllocatedBytes()
+    {
+        if (threadBean == null) return 0;
+
+        long bytes = 0;
+        for (final long threadBytes : threadBean.getThreadAllocatedBytes(threadBean.getAllThreadIds())) bytes += Math.max(0L, threadBytes);
+        return bytes;
+    }
+
+    private final long getGcMillis()
+    {
+        long millis = 0;
+        for (final GarbageCollectorMXBean gcBean : gcBeans) millis += Math.max(0L, gcBean.getCollectionTime());
+        return millis;
+    }
+
+    private final long getGcCount()
+    {
+        long count = 0;
+        for (final GarbageCollectorMXBean gcBean : gcBeans) count += Math.max(0L, gcBean.getCollectionCount());
+        return count;
+    }
+}
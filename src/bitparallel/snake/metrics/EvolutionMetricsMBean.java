@@ -0,0 +1,23 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake.metrics;
+
+//
+// the per generation throughput and memory figures, as published over JMX, see EvolutionMetrics
+// note, all of the figures are for the most recently completed generation, except for the totals
+//
+
+public interface EvolutionMetricsMBean
+{
+    public int getGeneration();
+    public double getGenerationMillis();
+    public double getSnakesPerSecond();
+    public double getMovesPerSecond();
+    public long getAllocatedBytesPerGeneration();
+    public long getGcMillisPerGeneration();
+    public long getGcCountPerGeneration();
+    public long getTotalGcMillis();
+    public void reset();
+}
@@ -0,0 +1,140 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//
+// an HDR style histogram of nanosecond latencies, i.e. log-linear buckets of a fixed relative precision over the full range of a long
+//
+//   values below SUB_BUCKETS are counted exactly, above that each power of two is split into SUB_BUCKETS equal buckets
+//   so a bucket's width is at most 1 / SUB_BUCKETS of its value, i.e. 3.1% for 32 sub-buckets, in 1888 buckets (15 KB)
+//
+// notes 1, record() is lock free, i.e. a few atomic updates, so it can be called by the evaluation threads for every snake
+//       2, the counts accumulate from creation (or the last reset()), the percentiles are always over every recorded value
+//       3, reset() isn't atomic with respect to concurrent calls to record(), a value recorded during the reset may be partially cleared
+//
+
+public class LatencyHistogram implements LatencyHistogramMBean
+{
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong count, total, maximum;
+    private volatile long last;
+
+    public LatencyHistogram()
+    {
+        counts = new AtomicLongArray(BUCKETS);
+        count = new AtomicLong();
+        total = new AtomicLong();
+        maximum = new AtomicLong();
+        last = 0;
+    }
+
+    public final void record(final long nanos)
+    {
+        final long value = Math.max(0L, nanos);
+        counts.incrementAndGet(getBucket(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+        last = value;
+
+        long currentMaximum = maximum.get();
+        while ((value > currentMaximum) && !maximum.compareAndSet(currentMaximum, value)) currentMaximum = maximum.get();
+    }
+
+    public final long getCount()
+    {
+        return count.get();
+    }
+
+    public final long getLastNanos()
+    {
+        return last;
+    }
+
+    public final double getLastMicros()
+    {
+        return last / NANOS_PER_MICRO;
+    }
+
+    public final double getMeanMicros()
+    {
+        final long n = count.get();
+        return (n == 0) ? 0.0 : (total.get() / NANOS_PER_MICRO / n);
+    }
+
+    public final double getP50Micros()
+    {
+        return getPercentile(0.50) / NANOS_PER_MICRO;
+    }
+
+    public final double getP90Micros()
+    {
+        return getPercentile(0.90) / NANOS_PER_MICRO;
+    }
+
+    public final double getP99Micros()
+    {
+        return getPercentile(0.99) / NANOS_PER_MICRO;
+    }
+
+    public final double getMaxMicros()
+    {
+        return maximum.get() / NANOS_PER_MICRO;
+    }
+
+    public final void reset()
+    {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        count.set(0);
+        total.set(0);
+        maximum.set(0);
+        last = 0;
+    }
+
+    // the highest value equivalent to the percentile's bucket, capped at the maximum recorded value, in nanoseconds
+    //
+    public final long getPercentile(final double percentile)
+    {
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) n += counts.get(i);
+        if (n == 0) return 0;
+
+        final long rank = Math.max(1L, (long)Math.ceil(percentile * n));
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            cumulative += counts.get(i);
+            if (cumulative >= rank) return Math.min(getHighestValue(i), maximum.get());
+        }
+
+        return maximum.get();
+    }
+
+    // i.e. the value's magnitude selects the power of two and its top SUB_BUCKET_BITS + 1 bits the sub-bucket within it
+    //
+    private static final int getBucket(final long value)
+    {
+        if (value < SUB_BUCKETS) return (int)value;
+
+        final int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int)((value >>> shift) - SUB_BUCKETS);
+    }
+
+    private static final long getHighestValue(final int bucket)
+    {
+        if (bucket < SUB_BUCKETS) return bucket;
+
+        final int shift = (bucket >> SUB_BUCKET_BITS) - 1;
+        final long subBucket = bucket & (SUB_BUCKETS - 1);
+        return ((SUB_BUCKETS + subBucket) << shift) + ((1L << shift) - 1);
+    }
+}
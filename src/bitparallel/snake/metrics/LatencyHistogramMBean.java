@@ -0,0 +1,22 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake.metrics;
+
+//
+// a phase's latencies, as published over JMX, see LatencyHistogram
+// note, the percentiles are the highest value of their bucket, i.e. within 1 / 32 (3.1%) of the recorded value
+//
+
+public interface LatencyHistogramMBean
+{
+    public long getCount();
+    public double getLastMicros();
+    public double getMeanMicros();
+    public double getP50Micros();
+    public double getP90Micros();
+    public double getP99Micros();
+    public double getMaxMicros();
+    public void reset();
+}
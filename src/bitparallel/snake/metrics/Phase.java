@@ -0,0 +1,32 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake.metrics;
+
+//
+// the timed phases of the evolution, each has its own LatencyHistogram, see EvolutionMetrics
+//
+//   Spawn, SnakePit.spawn(), i.e. the breeding of the next generation
+//   Crossover, each call of SnakePit.crossover() within spawn()
+//   Evaluate, the survival of the whole generation, i.e. the parallel (or sequential) evaluation within SnakePit.survive()
+//   Survive, each Snake.survive() within the evaluation, PerSnake evaluation mode only
+//   Sort, the ranking of the evaluated generation and the selection of its parents
+//   Replay, the re-simulation of the champion, ChampionReplay recording mode only
+//   Checkpoint, writing the population checkpoint
+//   Fsync, the EvolutionLogger forcing the CSV to disk, timed on its background thread
+//   Animate, handing the champion to the UI, GeneticSnake only, i.e. the cost of SnakeViewer.animate() to the evolution thread
+//
+
+public enum Phase
+{
+    Spawn,
+    Crossover,
+    Evaluate,
+    Survive,
+    Sort,
+    Replay,
+    Checkpoint,
+    Fsync,
+    Animate
+}
@@ -0,0 +1,16 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake.neural;
+
+//
+// a topology specialised forward pass, generated at runtime by NetworkCompiler and bound to a single network's genome
+//
+// note, implementations must perform the same arithmetic, in the same order, as NeuralNetwork.think(), i.e. the results are identical
+//
+
+public interface CompiledNetwork
+{
+    public void think(final double[] inputs, final double[] outputs);
+}
@@ -0,0 +1,290 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake.neural;
+
+import java.util.Arrays;
+
+import bitparallel.snake.neural.activation.Activation;
+
+//
+// iterates a batch of networks that share a topology but each have their own genome, one layer at a time across the whole batch
+//
+// notes 1, the inputs and outputs are flat row major arrays, the row for batch slot s starts at s * getNumberOfInputs() etc.
+//       2, each layer is computed in blocks of BLOCK_SIZE networks, neuron by neuron, so that the block's activation rows stay cache resident
+//          whilst each network's weights for the neuron are streamed, the per-neuron arithmetic is identical to NeuralNetwork.think()
+//          and the block's weighted sums are then thresholded in bulk, see Activation.apply()
+//       3, the genomes are referenced and not copied, so the networks must not change state whilst in the batch
+//       4, a batch of float precision networks narrows the inputs, iterates in float and widens the outputs, as NeuralNetwork.think()
+//       5, a batch of int16 or int8 precision networks iterates each network's QuantizedNetwork in turn
+//
+
+public class NetworkBatch
+{
+    private static final int BLOCK_SIZE = 16;
+
+    private final Activation activation;
+    private final NetworkPrecision precision;
+    private final int[] layerSizes, layerOffsets;
+    private final int capacity;
+    private final double[][] genomes;
+    private final float[][] floatGenomes;
+    private final QuantizedNetwork[] quantizedNetworks;
+    private final double[] inputs, outputs, layerBufferA, layerBufferB;
+    private final float[] floatInputs, floatOutputs, floatBufferA, floatBufferB;
+    private int size;
+
+    public NetworkBatch(final NeuralNetwork prototype, final int capacity)
+    {
+        final NetworkState state = prototype.getState();
+        this.activation = prototype.getActivation();
+        this.precision = prototype.getPrecision();
+        this.capacity = capacity;
+
+        layerSizes = state.getLayerSizes().clone();
+        layerOffsets = new int[layerSizes.length];
+        int widestLayer = 0;
+        for (int layer = 0; layer < layerSizes.length; layer++)
+        {
+            layerOffsets[layer] = state.getLayerOffset(layer);
+            if ((layer > 0) && (layer < layerSizes.length - 1)) widestLayer = Math.max(widestLayer, layerSizes[layer]);
+        }
+
+        inputs = new double[capacity * getNumberOfInputs()];
+        outputs = new double[capacity * getNumberOfOutputs()];
+        switch (precision)
+        {
+            case Double:
+                genomes = new double[capacity][];
+                floatGenomes = null;
+                quantizedNetworks = null;
+                layerBufferA = new double[capacity * widestLayer];
+                layerBufferB = new double[capacity * widestLayer];
+                floatInputs = floatOutputs = floatBufferA = floatBufferB = null;
+                break;
+
+            case Float:
+                genomes = null;
+                floatGenomes = new float[capacity][];
+                quantizedNetworks = null;
+                layerBufferA = layerBufferB = null;
+                floatInputs = new float[capacity * getNumberOfInputs()];
+                floatOutputs = new float[capacity * getNumberOfOutputs()];
+                floatBufferA = new float[capacity * widestLayer];
+                floatBufferB = new float[capacity * widestLayer];
+                break;
+
+            case Int16:
+            case Int8:
+                genomes = null;
+                floatGenomes = null;
+                quantizedNetworks = new QuantizedNetwork[capacity];
+                layerBufferA = layerBufferB = null;
+                floatInputs = floatOutputs = floatBufferA = floatBufferB = null;
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unable to create the network batch, bad NetworkPrecision enum");
+        }
+
+        size = 0;
+    }
+
+    public final int getNumberOfInputs()
+    {
+        return layerSizes[0];
+    }
+
+    public final int getNumberOfOutputs()
+    {
+        return layerSizes[layerSizes.length - 1];
+    }
+
+    public final int getSize()
+    {
+        return size;
+    }
+
+    public final double[] getInputs()
+    {
+        return inputs;
+    }
+
+    public final double[] getOutputs()
+    {
+        return outputs;
+    }
+
+    // returns the batch slot allocated to the network
+    //
+    public final int add(final NeuralNetwork network)
+    {
+        if (size == capacity) throw new IllegalStateException("The network batch is full, capacity: " + capacity);
+
+        final NetworkState state = network.getState();
+        if (!Arrays.equals(layerSizes, state.getLayerSizes())) throw new IllegalArgumentException("Incorrect network topology for this batch: " + Arrays.toString(state.getLayerSizes()));
+        if (network.getPrecision() != precision) throw new IllegalArgumentException("Incorrect network precision for this batch: " + network.getPrecision());
+
+        if (genomes != null)
+        {
+            genomes[size] = state.getGenome();
+        }
+        else if (floatGenomes != null)
+        {
+            floatGenomes[size] = state.getFloatGenome();
+        }
+        else
+        {
+            quantizedNetworks[size] = network.getQuantizedNetwork();
+        }
+
+        return size++;
+    }
+
+    // used to compact the batch, moves the network in slot 'from' down to slot 'to', then truncate()
+    //
+    public final void move(final int from, final int to)
+    {
+        if (genomes != null)
+        {
+            genomes[to] = genomes[from];
+        }
+        else if (floatGenomes != null)
+        {
+            floatGenomes[to] = floatGenomes[from];
+        }
+        else
+        {
+            quantizedNetworks[to] = quantizedNetworks[from];
+        }
+    }
+
+    public final void truncate(final int newSize)
+    {
+        for (int i = newSize; i < size; i++)
+        {
+            if (genomes != null)
+            {
+                genomes[i] = null;
+            }
+            else if (floatGenomes != null)
+            {
+                floatGenomes[i] = null;
+            }
+            else
+            {
+                quantizedNetworks[i] = null;
+            }
+        }
+
+        size = newSize;
+    }
+
+    public final void clear()
+    {
+        truncate(0);
+    }
+
+    // iterate every network in the batch, reads the inputs and writes the outputs
+    //
+    public final void think()
+    {
+        if (floatGenomes != null)
+        {
+            thinkFloat();
+            return;
+        }
+
+        if (quantizedNetworks != null)
+        {
+            final int numberOfInputs = getNumberOfInputs();
+            final int numberOfOutputs = getNumberOfOutputs();
+            for (int slot = 0; slot < size; slot++) quantizedNetworks[slot].think(inputs, slot * numberOfInputs, outputs, slot * numberOfOutputs);
+            return;
+        }
+
+        double[] layerInputs = inputs;
+        for (int layer = 1; layer < layerSizes.length; layer++)
+        {
+            final int numberOfLayerInputs = layerSizes[layer - 1];
+            final int numberOfLayerNeurons = layerSizes[layer];
+            final int neuronStride = numberOfLayerInputs + 1;
+            final int layerOffset = layerOffsets[layer - 1];
+            final double[] layerOutputs = (layer == layerSizes.length - 1) ? outputs : ((layerInputs == layerBufferA) ? layerBufferB : layerBufferA);
+
+            for (int blockStart = 0; blockStart < size; blockStart += BLOCK_SIZE)
+            {
+                final int blockEnd = Math.min(size, blockStart + BLOCK_SIZE);
+                for (int neuron = 0; neuron < numberOfLayerNeurons; neuron++)
+                {
+                    final int weightsOffset = layerOffset + (neuron * neuronStride);
+                    for (int slot = blockStart; slot < blockEnd; slot++)
+                    {
+                        final double[] genome = genomes[slot];
+                        final int inputsOffset = slot * numberOfLayerInputs;
+
+                        double weightedSum = 0.0;
+                        for (int i = 0; i < numberOfLayerInputs; i++) weightedSum += (layerInputs[inputsOffset + i] * genome[weightsOffset + i]);
+
+                        // add bias, assumes a hidden input of 1.0
+                        //
+                        weightedSum += genome[weightsOffset + numberOfLayerInputs];
+                        layerOutputs[(slot * numberOfLayerNeurons) + neuron] = weightedSum;
+                    }
+                }
+
+                activation.apply(layerOutputs, blockStart * numberOfLayerNeurons, blockEnd * numberOfLayerNeurons);
+            }
+
+            layerInputs = layerOutputs;
+        }
+    }
+
+    // as think(), using the float genomes and float arithmetic throughout
+    //
+    private final void thinkFloat()
+    {
+        final int inputCount = size * getNumberOfInputs();
+        for (int i = 0; i < inputCount; i++) floatInputs[i] = (float)inputs[i];
+
+        float[] layerInputs = floatInputs;
+        for (int layer = 1; layer < layerSizes.length; layer++)
+        {
+            final int numberOfLayerInputs = layerSizes[layer - 1];
+            final int numberOfLayerNeurons = layerSizes[layer];
+            final int neuronStride = numberOfLayerInputs + 1;
+            final int layerOffset = layerOffsets[layer - 1];
+            final float[] layerOutputs = (layer == layerSizes.length - 1) ? floatOutputs : ((layerInputs == floatBufferA) ? floatBufferB : floatBufferA);
+
+            for (int blockStart = 0; blockStart < size; blockStart += BLOCK_SIZE)
+            {
+                final int blockEnd = Math.min(size, blockStart + BLOCK_SIZE);
+                for (int neuron = 0; neuron < numberOfLayerNeurons; neuron++)
+                {
+                    final int weightsOffset = layerOffset + (neuron * neuronStride);
+                    for (int slot = blockStart; slot < blockEnd; slot++)
+                    {
+                        final float[] genome = floatGenomes[slot];
+                        final int inputsOffset = slot * numberOfLayerInputs;
+
+                        float weightedSum = 0.0f;
+                        for (int i = 0; i < numberOfLayerInputs; i++) weightedSum += (layerInputs[inputsOffset + i] * genome[weightsOffset + i]);
+
+                        // add bias, assumes a hidden input of 1.0
+                        //
+                        weightedSum += genome[weightsOffset + numberOfLayerInputs];
+                        layerOutputs[(slot * numberOfLayerNeurons) + neuron] = weightedSum;
+                    }
+                }
+
+                activation.apply(layerOutputs, blockStart * numberOfLayerNeurons, blockEnd * numberOfLayerNeurons);
+            }
+
+            layerInputs = layerOutputs;
+        }
+
+        final int outputCount = size * getNumberOfOutputs();
+        for (int i = 0; i < outputCount; i++) outputs[i] = floatOutputs[i];
+    }
+}
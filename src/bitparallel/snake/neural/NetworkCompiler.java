@@ -0,0 +1,261 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake.neural;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.LogManager;
+
+import bitparallel.snake.neural.activation.Activation;
+import bitparallel.snake.neural.activation.ReLU;
+
+//
+// generates, compiles and loads a CompiledNetwork class for a given topology at runtime, see NeuralNetwork.compile()
+//
+//   each layer is a method with its loops fully unrolled, the layer's inputs are held in locals and the weights are read from the genome
+//   at constant offsets, a ReLU threshold is inlined, any other activation is applied in bulk once per layer, see Activation.apply()
+//
+// notes 1, the Java source is generated and compiled in memory with the JDK's javax.tools compiler and defined by a child class loader
+//          so it requires a JDK at runtime, with a JRE (or should the compilation fail) the network simply continues to be interpreted
+//       2, a layer of more than MAXIMUM_LAYER_WEIGHTS weights is unsupported, HotSpot refuses to JIT compile methods of more than 8000
+//          bytes of bytecode, so a larger unrolled layer would run slower, rather than faster, than the interpreted loop
+//       3, the compiled classes are cached by topology and activation kind, so the compiler runs once per run, not once per snake
+//       4, the generated sums are in the same order as NeuralNetwork.think(), i.e. the results are identical, not merely close
+//
+
+public class NetworkCompiler
+{
+    public static final int MAXIMUM_LAYER_WEIGHTS = 512;
+
+    private static final String PACKAGE_NAME = "bitparallel.snake.neural.generated";
+
+    private static final Logger logger = LogManager.getLogger(NetworkCompiler.class);
+    private static final Map<String, Constructor<? extends CompiledNetwork>> compiledClasses = new HashMap<String, Constructor<? extends CompiledNetwork>>();
+    private static final Set<String> unsupportedClasses = new HashSet<String>();
+
+    private NetworkCompiler()
+    {
+    }
+
+    // returns null should the topology be unsupported or the compilation fail, i.e. the caller continues to interpret the network
+    //
+    public static final CompiledNetwork compile(final Activation activation, final int[] layerSizes, final double[] genome)
+    {
+        final Constructor<? extends CompiledNetwork> constructor = getConstructor(activation, layerSizes);
+        if (constructor == null) return null;
+
+        try
+        {
+            return constructor.newInstance(genome, activation);
+        }
+        catch (ReflectiveOperationException ex)
+        {
+            throw new IllegalStateException("Unable to instantiate the compiled network: " + constructor.getDeclaringClass().getName(), ex);
+        }
+    }
+
+    private static final synchronized Constructor<? extends CompiledNetwork> getConstructor(final Activation activation, final int[] layerSizes)
+    {
+        final boolean inlineReLU = (activation instanceof ReLU);
+        final StringBuffer className = new StringBuffer("Network");
+        for (int i = 0; i < layerSizes.length; i++) className.append((i == 0) ? "" : "x").append(layerSizes[i]);
+        className.append(inlineReLU ? "ReLU" : "Activation");
+
+        final String name = className.toString();
+        if (unsupportedClasses.contains(name)) return null;
+
+        Constructor<? extends CompiledNetwork> constructor = compiledClasses.get(name);
+        if (constructor != null) return constructor;
+
+        for (int layer = 1; layer < layerSizes.length; layer++)
+        {
+            final int layerWeights = layerSizes[layer] * layerSizes[layer - 1];
+            if (layerWeights > MAXIMUM_LAYER_WEIGHTS)
+            {
+                logger.info("Unable to compile the " + Arrays.toString(layerSizes) + " network, layer #" + layer + " has " + layerWeights + " weights, the maximum is " + MAXIMUM_LAYER_WEIGHTS + ", the network will be interpreted");
+                unsupportedClasses.add(name);
+                return null;
+            }
+        }
+
+        final long start = System.nanoTime();
+        constructor = define(PACKAGE_NAME + "." + name, generateSource(name, inlineReLU, layerSizes));
+        if (constructor == null)
+        {
+            unsupportedClasses.add(name);
+            return null;
+        }
+
+        logger.info("Compiled the " + Arrays.toString(layerSizes) + " network as " + name + ", " + ((System.nanoTime() - start) / 1000000L) + " ms");
+        compiledClasses.put(name, constructor);
+        return constructor;
+    }
+
+    private static final String generateSource(final String className, final boolean inlineReLU, final int[] layerSizes)
+    {
+        final int numberOfLayers = layerSizes.length - 1;
+        final StringBuffer source = new StringBuffer();
+        source.append("package ").append(PACKAGE_NAME).append(";\n\n");
+        source.append("public final class ").append(className).append(" implements bitparallel.snake.neural.CompiledNetwork\n{\n");
+        source.append("    private final double[] w;\n");
+        source.append("    private final bitparallel.snake.neural.activation.Activation activation;\n");
+        for (int layer = 1; layer < numberOfLayers; layer++) source.append("    private final double[] h").append(layer).append(" = new double[").append(layerSizes[layer]).append("];\n");
+
+        source.append("\n    public ").append(className).append("(final double[] w, final bitparallel.snake.neural.activation.Activation activation)\n    {\n");
+        source.append("        this.w = w;\n        this.activation = activation;\n    }\n\n");
+
+        source.append("    public final void think(final double[] inputs, final double[] outputs)\n    {\n");
+        for (int layer = 1; layer <= numberOfLayers; layer++)
+        {
+            final String layerInputs = (layer == 1) ? "inputs" : ("h" + (layer - 1));
+            final String layerOutputs = (layer == numberOfLayers) ? "outputs" : ("h" + layer);
+            source.append("        layer").append(layer).append("(").append(layerInputs).append(", ").append(layerOutputs).append(");\n");
+        }
+        source.append("    }\n");
+
+        int offset = 0;
+        for (int layer = 1; layer <= numberOfLayers; layer++)
+        {
+            final int numberOfLayerInputs = layerSizes[layer - 1];
+            final int numberOfLayerNeurons = layerSizes[layer];
+
+            source.append("\n    private final void layer").append(layer).append("(final double[] in, final double[] out)\n    {\n");
+            source.append("        final double[] w = this.w;\n");
+            for (int i = 0; i < numberOfLayerInputs; i++) source.append("        final double x").append(i).append(" = in[").append(i).append("];\n");
+            source.append("        double s;\n");
+
+            for (int neuron = 0; neuron < numberOfLayerNeurons; neuron++)
+            {
+                source.append("\n        s = 0.0;\n");
+                for (int i = 0; i < numberOfLayerInputs; i++) source.append("        s += x").append(i).append(" * w[").append(offset++).append("];\n");
+                source.append("        s += w[").append(offset++).append("];\n");
+                source.append("        out[").append(neuron).append("] = ").append(inlineReLU ? "Math.max(0.0, s)" : "s").append(";\n");
+            }
+
+            if (!inlineReLU) source.append("\n        activation.apply(out, 0, ").append(numberOfLayerNeurons).append(");\n");
+            source.append("    }\n");
+        }
+
+        source.append("}\n");
+        return source.toString();
+    }
+
+    private static final Constructor<? extends CompiledNetwork> define(final String qualifiedName, final String source)
+    {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null)
+        {
+            logger.warn("Unable to compile the " + qualifiedName + " network, no Java compiler is available (a JRE rather than a JDK?), the network will be interpreted");
+            return null;
+        }
+
+        // the compiled class files are captured in memory, keyed by class name
+        //
+        final Map<String, ByteArrayOutputStream> classFiles = new HashMap<String, ByteArrayOutputStream>();
+        final JavaFileObject sourceFile = new SimpleJavaFileObject(URI.create("string:///" + qualifiedName.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension), JavaFileObject.Kind.SOURCE)
+        {
+            @Override
+            public CharSequence getCharContent(final boolean ignoreEncodingErrors)
+            {
+                return source;
+            }
+        };
+
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        final List<String> options = Arrays.asList("-classpath", System.getProperty("java.class.path"), "-g:none", "-proc:none");
+
+        // note, closing the forwarding file manager also closes the standard file manager, i.e. releases its open archives
+        //
+        boolean compiled = false;
+        try (final JavaFileManager fileManager = new MemoryFileManager(compiler.getStandardFileManager(null, null, null), classFiles))
+        {
+            compiled = compiler.getTask(null, fileManager, diagnostics, options, null, Collections.singletonList(sourceFile)).call();
+        }
+        catch (IOException ex)
+        {
+            logger.warn("Unable to close the file manager used to compile the " + qualifiedName + " network, ignored...", ex);
+        }
+
+        if (!compiled)
+        {
+            logger.warn("Unable to compile the " + qualifiedName + " network, the network will be interpreted, diagnostics: " + diagnostics.getDiagnostics());
+            return null;
+        }
+
+        final ClassLoader classLoader = new ClassLoader(NetworkCompiler.class.getClassLoader())
+        {
+            @Override
+            protected Class<?> findClass(final String className) throws ClassNotFoundException
+            {
+                final ByteArrayOutputStream classFile = classFiles.get(className);
+                if (classFile == null) throw new ClassNotFoundException(className);
+
+                final byte[] bytes = classFile.toByteArray();
+                return defineClass(className, bytes, 0, bytes.length);
+            }
+        };
+
+        try
+        {
+            return classLoader.loadClass(qualifiedName).asSubclass(CompiledNetwork.class).getConstructor(double[].class, Activation.class);
+        }
+        catch (ReflectiveOperationException ex)
+        {
+            logger.warn("Unable to load the compiled " + qualifiedName + " network, the network will be interpreted", ex);
+            return null;
+        }
+    }
+
+    // captures each compiled class file in memory, keyed by class name, rather than writing it to disk
+    //
+    private static final class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager>
+    {
+        private final Map<String, ByteArrayOutputStream> classFiles;
+
+        private MemoryFileManager(final StandardJavaFileManager standardFileManager, final Map<String, ByteArrayOutputStream> classFiles)
+        {
+            super(standardFileManager);
+            this.classFiles = classFiles;
+        }
+
+        @Override
+        public final JavaFileObject getJavaFileForOutput(final JavaFileManager.Location location, final String className, final JavaFileObject.Kind kind, final FileObject sibling)
+        {
+            final ByteArrayOutputStream classFile = new ByteArrayOutputStream();
+            classFiles.put(className, classFile);
+
+            return new SimpleJavaFileObject(URI.create("bytes:///" + className.replace('.', '/') + kind.extension), kind)
+            {
+                @Override
+                public OutputStream openOutputStream()
+                {
+                    return classFile;
+                }
+            };
+        }
+    }
+}
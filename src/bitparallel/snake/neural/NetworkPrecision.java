@@ -0,0 +1,23 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake.neural;
+
+//
+// the precision of a network's genome and arithmetic
+//
+//   Double, the original 64 bit genome and forward pass
+//   Float, a 32 bit genome and forward pass, halving the genome memory and bandwidth, the vision inputs are narrowed on entry
+//          and the outputs widened on exit
+//   Int16, Int8, a fixed point forward pass using 16 or 8 bit weights, see QuantizedNetwork, ReLU networks only
+//                the genome remains double, i.e. it is evolved as before and quantized whenever it is set
+//
+
+public enum NetworkPrecision
+{
+    Double,
+    Float,
+    Int16,
+    Int8
+}
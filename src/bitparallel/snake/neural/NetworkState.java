@@ -4,17 +4,62 @@
 
 package bitparallel.snake.neural;
 
+//
+// the network's weights and biases held as a single contiguous genome
+//
+// notes 1, layerSizes[0] is the number of network inputs, the remaining entries are the neuron counts for each layer, i.e. the last is the output count
+//       2, the genome is laid out layer by layer, neuron by neuron, each neuron's weights immediately followed by its bias weight
+//          i.e. a neuron in layer L occupies (layerSizes[L - 1] + 1) consecutive elements
+//       3, the layer offsets are precomputed, so a layer's neurons start at genome[getLayerOffset(L - 1)]
+//       4, the genome is either double or float precision, see NetworkPrecision, copyGenome() always returns a double copy
+//          i.e. the format used by crossover, the checkpoints and migration, a float genome widens exactly
+//
+
 public class NetworkState
-{ 
+{
     private final int dimension;
-    private final double[][][] weights;
-    private final double[][] bias;
+    private final int[] layerSizes, layerOffsets;
+    private final double[] genome;
+    private final float[] floatGenome;
 
-    public NetworkState(final double[][][] weights, final double[][] bias, final int dimension)
+    public NetworkState(final int[] layerSizes, final double[] genome)
     {
-        this.weights = weights;
-        this.bias = bias;
-        this.dimension = dimension;
+        this(layerSizes, genome, null, genome.length);
+    }
+
+    public NetworkState(final int[] layerSizes, final float[] floatGenome)
+    {
+        this(layerSizes, null, floatGenome, floatGenome.length);
+    }
+
+    private NetworkState(final int[] layerSizes, final double[] genome, final float[] floatGenome, final int genomeLength)
+    {
+        if (layerSizes.length < 2) throw new IllegalArgumentException("At least an input and an output layer size are required, supplied: " + layerSizes.length);
+
+        this.layerSizes = layerSizes;
+        this.genome = genome;
+        this.floatGenome = floatGenome;
+
+        layerOffsets = new int[layerSizes.length];
+        int offset = 0;
+        for (int layer = 1; layer < layerSizes.length; layer++)
+        {
+            layerOffsets[layer - 1] = offset;
+
+            // account for the bias weight
+            //
+            offset += (layerSizes[layer] * (layerSizes[layer - 1] + 1));
+        }
+
+        layerOffsets[layerSizes.length - 1] = offset;
+        dimension = offset;
+
+        if (genomeLength != dimension) throw new IllegalArgumentException("The genome length does not match the network dimension, supplied: " + genomeLength + ", required: " + dimension);
+    }
+
+    public final NetworkPrecision getPrecision()
+    {
+        return (genome != null) ? NetworkPrecision.Double : NetworkPrecision.Float;
     }
 
     public final int getDimension()
@@ -22,14 +67,60 @@ public class NetworkState
         return dimension;
     }
 
-    public final double[][][] getWeights()
+    public final int[] getLayerSizes()
+    {
+        return layerSizes;
+    }
+
+    // note, the genome offset of the first neuron in the given layer, where layer 0 is the first hidden layer
+    //       also, getLayerOffset(getLayerCount()) returns the network dimension
+    //
+    public final int getLayerOffset(final int layer)
+    {
+        return layerOffsets[layer];
+    }
+
+    // the number of neuron layers, i.e. excluding the inputs
+    //
+    public final int getLayerCount()
     {
-        return weights;
+        return layerSizes.length - 1;
     }
 
-    public final double[][] getBias()
+    public final double[] getGenome()
     {
-        return bias;
+        if (genome == null) throw new IllegalStateException("The genome has float precision, see getFloatGenome()");
+
+        return genome;
+    }
+
+    public final float[] getFloatGenome()
+    {
+        if (floatGenome == null) throw new IllegalStateException("The genome has double precision, see getGenome()");
+
+        return floatGenome;
+    }
+
+    // copies the genome into the supplied array, widening a float genome
+    //
+    public final void copyGenome(final double[] destination)
+    {
+        if (genome != null)
+        {
+            System.arraycopy(genome, 0, destination, 0, dimension);
+        }
+        else
+        {
+            for (int i = 0; i < dimension; i++) destination[i] = floatGenome[i];
+        }
+    }
+
+    public final double[] copyGenome()
+    {
+        final double[] copy = new double[dimension];
+        copyGenome(copy);
+
+        return copy;
     }
 
     @Override
@@ -38,17 +129,19 @@ public class NetworkState
         final StringBuffer sb = new StringBuffer();
         sb.append("\n");
 
-        for (int layer = 0; layer < weights.length; layer++)
+        for (int layer = 1; layer < layerSizes.length; layer++)
         {
             sb.append("Layer #");
-            sb.append(layer);
+            sb.append(layer - 1);
             sb.append(", ");
-            sb.append(weights[layer].length);
+            sb.append(layerSizes[layer]);
             sb.append(" Neurons [");
-            sb.append(weights[layer][0].length);
+            sb.append(layerSizes[layer - 1]);
             sb.append("i, ");
-            sb.append(weights[layer][0].length);
-            sb.append("w, 1b]\n");
+            sb.append(layerSizes[layer - 1]);
+            sb.append("w, 1b], Offset: ");
+            sb.append(layerOffsets[layer - 1]);
+            sb.append("\n");
         }
 
         sb.append("\nTotal Weights and Biases: ");
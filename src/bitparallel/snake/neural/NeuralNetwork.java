@@ -4,10 +4,12 @@
 
 package bitparallel.snake.neural;
 
+import java.util.Arrays;
+
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
-import bitparallel.snake.PsuedoRandom;
+import bitparallel.snake.random.RandomSource;
 import bitparallel.snake.neural.activation.Activation;
 
 public class NeuralNetwork
@@ -15,82 +17,182 @@ public class NeuralNetwork
     private static final Logger logger = LogManager.getLogger(NeuralNetwork.class);
 
     final int numberOfInputs;
-    private Neuron[][] layers;
-    private int dimension;
-    private NetworkState networkState;
+    private final NetworkPrecision precision;
+    private final Activation activation;
+    private final int[] layerSizes;
+    private final int dimension;
+    private final double[] genome;
+    private final float[] floatGenome;
+    private final NetworkState networkState;
+    private final double[] layerBufferA, layerBufferB;
+    private final float[] floatInputs, floatOutputs, floatBufferA, floatBufferB;
+    private final QuantizedNetwork quantizedNetwork;
+    private CompiledNetwork compiledNetwork;
+    private boolean hasState;
 
     // this class assumes that the network is fully connected,
     //   1. the 1st layer will have hiddenLayersSize[0] neurons, each with numberOfInputs inputs
     //   2. the next inner hidden layers will have hiddenLayerSize[...] neurons, but each will have as many inputs as there were outputs in the previous layer
     //   3. the final layer has numberOfOutputs neurons, each with as many inputs as there are neurons in the preceeding layer
     //
-    // note, each neuron has a hidden "always 1.0" input with a a specify [-1.0, 1.0] bias weight
+    // notes 1, each neuron has a hidden "always 1.0" input with a a specify [-1.0, 1.0] bias weight
+    //       2, all of the weights and biases are held in a single genome array owned by this network, see NetworkState for its layout
     //
     public NeuralNetwork(final Activation activation, final int numberOfInputs, final int numberOfOutputs, final int ... hiddenLayerSize)
     {
+        this(NetworkPrecision.Double, activation, numberOfInputs, numberOfOutputs, hiddenLayerSize);
+    }
+
+    // notes 1, a float precision network holds a float genome and iterates in float, see NetworkPrecision
+    //       2, an int16 or int8 precision network holds a double genome, but iterates its quantized copy, see QuantizedNetwork
+    //
+    public NeuralNetwork(final NetworkPrecision precision, final Activation activation, final int numberOfInputs, final int numberOfOutputs, final int ... hiddenLayerSize)
+    {
+        this.precision = precision;
+        this.activation = activation;
         this.numberOfInputs = numberOfInputs;
 
-        int neuronInputsForLayer = numberOfInputs;
-        layers = new Neuron[1 + hiddenLayerSize.length][];
         logger.debug("Creating the neural network with " + numberOfInputs + " inputs, " + (hiddenLayerSize.length + 1) + " layers and " + numberOfOutputs + " outputs");
-        logger.debug("Neuron activation: " + activation.getDescription());
+        logger.debug("Neuron activation: " + activation.getDescription() + ", precision: " + precision);
 
-        dimension = 0;
+        layerSizes = new int[hiddenLayerSize.length + 2];
+        layerSizes[0] = numberOfInputs;
         for (int i = 0; i < hiddenLayerSize.length; i++)
         {
-            final int layerSize = hiddenLayerSize[i];
-            logger.debug("Layer #" + i + ", neurons: " + layerSize);
-
-            layers[i] = new Neuron[layerSize];
-            for (int n = 0; n < layerSize; n++) layers[i][n] = new Neuron(neuronInputsForLayer, activation);
-
-            // account for the bias weight
-            //
-            dimension += (layerSize * (neuronInputsForLayer + 1));
-            neuronInputsForLayer = layerSize;
+            layerSizes[i + 1] = hiddenLayerSize[i];
+            logger.debug("Layer #" + i + ", neurons: " + hiddenLayerSize[i]);
         }
 
-        layers[layers.length - 1] = new Neuron[numberOfOutputs];
-        for (int n = 0; n < numberOfOutputs; n++) layers[layers.length - 1][n] = new Neuron(neuronInputsForLayer, activation);
-        logger.debug("Layer #" + (layers.length - 1) + ", neurons: " + numberOfOutputs);
+        layerSizes[layerSizes.length - 1] = numberOfOutputs;
+        logger.debug("Layer #" + hiddenLayerSize.length + ", neurons: " + numberOfOutputs);
+
+        // the state wraps this network's own genome, i.e. it is a live view and not a copy
+        //
+        int size = 0;
+        for (int layer = 1; layer < layerSizes.length; layer++) size += (layerSizes[layer] * (layerSizes[layer - 1] + 1));
 
-        // account for the bias weight
+        // scratch buffers for the hidden layer activations, used alternately as each layer's inputs and outputs
+        // note, a float network also narrows its inputs into, and widens its outputs from, its own buffers
         //
-        dimension += (numberOfOutputs * (neuronInputsForLayer + 1));
+        int widestLayer = 0;
+        for (int layer = 1; layer < layerSizes.length - 1; layer++) widestLayer = Math.max(widestLayer, layerSizes[layer]);
+
+        switch (precision)
+        {
+            case Double:
+                genome = new double[size];
+                floatGenome = null;
+                networkState = new NetworkState(layerSizes, genome);
+                layerBufferA = new double[widestLayer];
+                layerBufferB = new double[widestLayer];
+                floatInputs = floatOutputs = floatBufferA = floatBufferB = null;
+                quantizedNetwork = null;
+                break;
+
+            case Float:
+                genome = null;
+                floatGenome = new float[size];
+                networkState = new NetworkState(layerSizes, floatGenome);
+                layerBufferA = layerBufferB = null;
+                floatInputs = new float[numberOfInputs];
+                floatOutputs = new float[numberOfOutputs];
+                floatBufferA = new float[widestLayer];
+                floatBufferB = new float[widestLayer];
+                quantizedNetwork = null;
+                break;
+
+            case Int16:
+            case Int8:
+                genome = new double[size];
+                floatGenome = null;
+                networkState = new NetworkState(layerSizes, genome);
+                layerBufferA = layerBufferB = null;
+                floatInputs = floatOutputs = floatBufferA = floatBufferB = null;
+                quantizedNetwork = new QuantizedNetwork(precision, activation, layerSizes);
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unable to create the neural network, bad NetworkPrecision enum");
+        }
+
+        dimension = networkState.getDimension();
+        compiledNetwork = null;
+        hasState = false;
         logger.debug("Network dimension: " + dimension);
     }
 
-    public final void setRandomState()
+    // replaces the interpreted forward pass with a class generated for this network's topology, see NetworkCompiler
+    //
+    // notes 1, returns false, i.e. the network continues to be interpreted, for the precisions and topologies that can't be compiled
+    //       2, the compiled class is bound to this network's genome, so it sees every subsequent setState(), and its results are identical
+    //
+    public final boolean compile()
     {
-        final double[][][] weights = new double[layers.length][][];
-        final double[][] bias = new double[layers.length][];
+        if (precision != NetworkPrecision.Double) return false;
 
-        final PsuedoRandom random = PsuedoRandom.INSTANCE;
-        int layerInputCount = numberOfInputs;
-        for (int layer = 0; layer < layers.length; layer++)
-        {
-            weights[layer] = new double[layers[layer].length][];
-            bias[layer] = new double[layers[layer].length];
-            for (int neuron = 0; neuron < layers[layer].length; neuron++)
-            {
-                final double[] neuronWeights = new double[layerInputCount];
-                for (int i = 0; i < layerInputCount; i++) neuronWeights[i] = (2.0 * random.nextDouble()) - 1.0;
+        if (compiledNetwork == null) compiledNetwork = NetworkCompiler.compile(activation, layerSizes, genome);
+        return compiledNetwork != null;
+    }
+
+    public final boolean isCompiled()
+    {
+        return compiledNetwork != null;
+    }
 
-                final double neuronBias = (2.0 * random.nextDouble()) - 1.0;
-                layers[layer][neuron].setWeights(neuronWeights, neuronBias);
+    public final int getNumberOfInputs()
+    {
+        return numberOfInputs;
+    }
 
-                weights[layer][neuron] = neuronWeights;
-                bias[layer][neuron] = neuronBias;
-            }
+    public final int getNumberOfOutputs()
+    {
+        return layerSizes[layerSizes.length - 1];
+    }
 
-            // in a fully connected network the number of input for a given neuron in a given layer is equal to the number of outputs of the previous layer
-            //
-            layerInputCount = layers[layer].length;
+    // note, the inputs count followed by the neuron count of each layer, do not modify
+    //
+    public final int[] getLayerSizes()
+    {
+        return layerSizes;
+    }
+
+    public final Activation getActivation()
+    {
+        return activation;
+    }
+
+    public final NetworkPrecision getPrecision()
+    {
+        return precision;
+    }
+
+    // note, null unless the precision is Int16 or Int8
+    //
+    final QuantizedNetwork getQuantizedNetwork()
+    {
+        return quantizedNetwork;
+    }
+
+    // note, the genome is drawn in layout order, i.e. each neuron's weights followed by its bias
+    //
+    public final void setRandomState(final RandomSource random)
+    {
+        if (genome != null)
+        {
+            for (int i = 0; i < dimension; i++) genome[i] = (2.0 * random.nextDouble()) - 1.0;
+        }
+        else
+        {
+            for (int i = 0; i < dimension; i++) floatGenome[i] = (float)((2.0 * random.nextDouble()) - 1.0);
         }
 
-        networkState = new NetworkState(weights, bias, dimension);
+        if (quantizedNetwork != null) quantizedNetwork.quantize(networkState);
+        hasState = true;
     }
 
+    // notes 1, the supplied genome is copied into this network, the caller is free to reuse the supplied state
+    //       2, the supplied state may have either precision, it is widened or narrowed as required
+    //
     public final void setState(final NetworkState networkState)
     {
         if (dimension != networkState.getDimension())
@@ -104,53 +206,129 @@ public class NeuralNetwork
             throw new IllegalArgumentException(errorMessage.toString());
         }
 
-        this.networkState = networkState;
+        if (!Arrays.equals(layerSizes, networkState.getLayerSizes())) throw new IllegalArgumentException("Incorrect network topology inferred from the NetworkState layer sizes: " + Arrays.toString(networkState.getLayerSizes()));
 
-        final double[][][] weights = networkState.getWeights();
-        final double[][] bias = networkState.getBias();
-
-        // note, the number of allowed weights per neuron is not checked here, it's implemented by neuron.setWeights()
-        //
-        if (weights.length != layers.length) throw new IllegalArgumentException("Incorrect layer count inferred from the NetworkState weights[] array");
-        for (int layer = 0; layer < layers.length; layer++)
+        if (genome != null)
         {
-            final int neuronsInLayer = layers[layer].length;
-            if (weights[layer].length != neuronsInLayer) throw new IllegalArgumentException("Incorrect neurons count inferred from the NetworkState weights[" + layer + "][] array");
-
-            for (int neuron = 0; neuron < neuronsInLayer; neuron++)
-            {
-                final double[] neuronWeights = weights[layer][neuron];
-                layers[layer][neuron].setWeights(neuronWeights, bias[layer][neuron]);
-            }
+            networkState.copyGenome(genome);
+        }
+        else if (networkState.getPrecision() == NetworkPrecision.Float)
+        {
+            System.arraycopy(networkState.getFloatGenome(), 0, floatGenome, 0, dimension);
+        }
+        else
+        {
+            final double[] doubleGenome = networkState.getGenome();
+            for (int i = 0; i < dimension; i++) floatGenome[i] = (float)doubleGenome[i];
         }
+
+        if (quantizedNetwork != null) quantizedNetwork.quantize(this.networkState);
+        hasState = true;
     }
 
-    // note, head off any unexpected null reference exceptions
+    // notes 1, head off any unexpected null reference exceptions
+    //       2, the returned state is a live view of this network's genome, it must not be modified, use setState()
     //
     public final NetworkState getState()
     {
-        if (networkState == null) throw new NullPointerException("No network state has been set");
+        if (!hasState) throw new NullPointerException("No network state has been set");
 
         return networkState;
     }
 
-    // iterate the neural network
+    // iterate the neural network, returning a newly allocated output vector
     //
     public final double[] think(final double[] inputs)
     {
-        if (inputs.length > numberOfInputs) throw new IllegalArgumentException("Too many network inputs, RXed: " + inputs.length + ", expected: " + numberOfInputs);
+        final double[] outputs = new double[getNumberOfOutputs()];
+        think(inputs, outputs);
+
+        return outputs;
+    }
+
+    // iterate the neural network, each layer is a single pass over its contiguous slice of the genome, writing the weighted sums
+    // that are then thresholded in bulk, see Activation.apply()
+    //
+    // notes 1, the hidden layers use this network's own scratch buffers and the final layer writes directly into the supplied outputs
+    //          i.e. nothing is allocated, however it also means that a network instance must only be iterated by one thread at a time
+    //       2, the supplied inputs and outputs arrays must not be the same array
+    //
+    public final void think(final double[] inputs, final double[] outputs)
+    {
+        if (inputs.length != numberOfInputs) throw new IllegalArgumentException("Incorrect number of network inputs, RXed: " + inputs.length + ", expected: " + numberOfInputs);
+        if (outputs.length != getNumberOfOutputs()) throw new IllegalArgumentException("Incorrect number of network outputs, RXed: " + outputs.length + ", expected: " + getNumberOfOutputs());
+
+        if (floatGenome != null)
+        {
+            thinkFloat(inputs, outputs);
+            return;
+        }
+
+        if (quantizedNetwork != null)
+        {
+            quantizedNetwork.think(inputs, outputs);
+            return;
+        }
+
+        if (compiledNetwork != null)
+        {
+            compiledNetwork.think(inputs, outputs);
+            return;
+        }
 
         double[] layerInputs = inputs;
-        for (int layer = 0; layer < layers.length; layer++)
+        int offset = 0;
+        for (int layer = 1; layer < layerSizes.length; layer++)
         {
-            final int numberOfLayerNeurons = layers[layer].length;
-            final double[] layerOutputs = new double[numberOfLayerNeurons];
-            for (int neuron = 0; neuron < numberOfLayerNeurons; neuron++) layerOutputs[neuron] = layers[layer][neuron].think(layerInputs);
+            final int numberOfLayerInputs = layerSizes[layer - 1];
+            final int numberOfLayerNeurons = layerSizes[layer];
+            final double[] layerOutputs = (layer == layerSizes.length - 1) ? outputs : ((layerInputs == layerBufferA) ? layerBufferB : layerBufferA);
+            for (int neuron = 0; neuron < numberOfLayerNeurons; neuron++)
+            {
+                double weightedSum = 0.0;
+                for (int i = 0; i < numberOfLayerInputs; i++) weightedSum += (layerInputs[i] * genome[offset + i]);
+                offset += numberOfLayerInputs;
+
+                // add bias, assumes a hidden input of 1.0
+                //
+                weightedSum += genome[offset++];
+                layerOutputs[neuron] = weightedSum;
+            }
+
+            activation.apply(layerOutputs, 0, numberOfLayerNeurons);
             layerInputs = layerOutputs;
         }
+    }
 
-        // i.e. the network output, see last statement in above loop
-        //
-        return layerInputs;
+    // as think(), using the float genome and float arithmetic throughout
+    //
+    private final void thinkFloat(final double[] inputs, final double[] outputs)
+    {
+        for (int i = 0; i < numberOfInputs; i++) floatInputs[i] = (float)inputs[i];
+
+        float[] layerInputs = floatInputs;
+        int offset = 0;
+        for (int layer = 1; layer < layerSizes.length; layer++)
+        {
+            final int numberOfLayerInputs = layerSizes[layer - 1];
+            final int numberOfLayerNeurons = layerSizes[layer];
+            final float[] layerOutputs = (layer == layerSizes.length - 1) ? floatOutputs : ((layerInputs == floatBufferA) ? floatBufferB : floatBufferA);
+            for (int neuron = 0; neuron < numberOfLayerNeurons; neuron++)
+            {
+                float weightedSum = 0.0f;
+                for (int i = 0; i < numberOfLayerInputs; i++) weightedSum += (layerInputs[i] * floatGenome[offset + i]);
+                offset += numberOfLayerInputs;
+
+                // add bias, assumes a hidden input of 1.0
+                //
+                weightedSum += floatGenome[offset++];
+                layerOutputs[neuron] = weightedSum;
+            }
+
+            activation.apply(layerOutputs, 0, numberOfLayerNeurons);
+            layerInputs = layerOutputs;
+        }
+
+        for (int i = 0; i < outputs.length; i++) outputs[i] = floatOutputs[i];
     }
 }
@@ -0,0 +1,226 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake.neural;
+
+import java.util.Arrays;
+
+import bitparallel.snake.neural.activation.Activation;
+import bitparallel.snake.neural.activation.ReLU;
+
+//
+// a fixed point inference engine for a ReLU network, built from a NetworkState, see quantize()
+//
+//   weights, int8 or int16, with a power of two scale per layer, i.e. w = q * 2^-shift, the largest shift that fits the layer's largest weight
+//   biases, held as longs at the accumulator's scale
+//   activations, ints with ACTIVATION_FRACTION_BITS fractional bits, the network inputs are truncated on entry
+//
+// notes 1, each neuron is a long multiply-accumulate over its inputs, an integer ReLU and an arithmetic shift (with rounding) back
+//          to the activation scale, the final layer's outputs are converted back to double, i.e. the only floating point arithmetic
+//          is at the network's inputs and outputs
+//       2, the mutation clamps every weight and bias to [-1.0, 1.0], so the int8 weights resolve at least 2^-6 and the int16 at least 2^-14
+//       3, the weights are 4 (int16) or 8 (int8) times smaller than the double genome and the integer sums are exact, i.e. the results
+//          do not depend on the summation order, however HotSpot doesn't vectorise the widening multiply-accumulate, so expect much the
+//          same throughput as the double network, see NeuralNetworkBenchmark
+//       4, a quantized network is a snapshot, it must be quantized again should the state's genome change
+//       5, as with NeuralNetwork, an instance must only be iterated by one thread at a time
+//
+
+public class QuantizedNetwork
+{
+    public static final int ACTIVATION_FRACTION_BITS = 16;
+
+    private static final int MAXIMUM_WEIGHT_SHIFT = 30;
+    private static final double ACTIVATION_SCALE = (double)(1L << ACTIVATION_FRACTION_BITS);
+
+    private final NetworkPrecision precision;
+    private final int[] layerSizes;
+    private final int weightLimit;
+    private final byte[] byteWeights;
+    private final short[] shortWeights;
+    private final long[] biases, accumulators;
+    private final int[] weightShifts;
+    private final double[] outputScales;
+    private final int[] inputActivations, layerBufferA, layerBufferB;
+
+    public QuantizedNetwork(final NetworkPrecision precision, final Activation activation, final int[] layerSizes)
+    {
+        if (!(activation instanceof ReLU)) throw new IllegalArgumentException("Only ReLU networks can be quantized, supplied: " + activation.getDescription());
+
+        this.precision = precision;
+        this.layerSizes = layerSizes.clone();
+
+        int weightCount = 0, neuronCount = 0, widestLayer = 0;
+        for (int layer = 1; layer < layerSizes.length; layer++)
+        {
+            weightCount += (layerSizes[layer] * layerSizes[layer - 1]);
+            neuronCount += layerSizes[layer];
+            if (layer < layerSizes.length - 1) widestLayer = Math.max(widestLayer, layerSizes[layer]);
+        }
+
+        switch (precision)
+        {
+            case Int8:
+                weightLimit = Byte.MAX_VALUE;
+                byteWeights = new byte[weightCount];
+                shortWeights = null;
+                break;
+
+            case Int16:
+                weightLimit = Short.MAX_VALUE;
+                byteWeights = null;
+                shortWeights = new short[weightCount];
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unable to create the quantized network, requires the Int8 or Int16 NetworkPrecision, supplied: " + precision);
+        }
+
+        biases = new long[neuronCount];
+        accumulators = new long[neuronCount];
+        weightShifts = new int[layerSizes.length - 1];
+        outputScales = new double[layerSizes.length - 1];
+        inputActivations = new int[layerSizes[0]];
+        layerBufferA = new int[widestLayer];
+        layerBufferB = new int[widestLayer];
+    }
+
+    public final NetworkPrecision getPrecision()
+    {
+        return precision;
+    }
+
+    public final int getNumberOfInputs()
+    {
+        return layerSizes[0];
+    }
+
+    public final int getNumberOfOutputs()
+    {
+        return layerSizes[layerSizes.length - 1];
+    }
+
+    // converts the state's weights and biases, the state may have either floating point precision
+    //
+    public final void quantize(final NetworkState state)
+    {
+        if (!Arrays.equals(layerSizes, state.getLayerSizes())) throw new IllegalArgumentException("Incorrect network topology for this quantized network: " + Arrays.toString(state.getLayerSizes()));
+
+        final double[] genome = (state.getPrecision() == NetworkPrecision.Double) ? state.getGenome() : state.copyGenome();
+
+        int offset = 0, weight = 0, neuron = 0;
+        for (int layer = 1; layer < layerSizes.length; layer++)
+        {
+            final int numberOfLayerInputs = layerSizes[layer - 1];
+            final int numberOfLayerNeurons = layerSizes[layer];
+
+            // the largest shift that maps the layer's largest weight into [-weightLimit, weightLimit]
+            //
+            double maximumWeight = 0.0;
+            for (int n = 0; n < numberOfLayerNeurons; n++)
+            {
+                final int neuronOffset = offset + (n * (numberOfLayerInputs + 1));
+                for (int i = 0; i < numberOfLayerInputs; i++) maximumWeight = Math.max(maximumWeight, Math.abs(genome[neuronOffset + i]));
+            }
+
+            int shift = MAXIMUM_WEIGHT_SHIFT;
+            while ((shift > 1) && ((maximumWeight * (1L << shift)) > weightLimit)) shift--;
+            weightShifts[layer - 1] = shift;
+            outputScales[layer - 1] = Math.scalb(1.0, -(ACTIVATION_FRACTION_BITS + shift));
+
+            final double weightScale = (double)(1L << shift);
+            final double biasScale = weightScale * ACTIVATION_SCALE;
+            for (int n = 0; n < numberOfLayerNeurons; n++)
+            {
+                for (int i = 0; i < numberOfLayerInputs; i++)
+                {
+                    final long q = Math.round(genome[offset++] * weightScale);
+                    if (byteWeights != null)
+                    {
+                        byteWeights[weight++] = (byte)q;
+                    }
+                    else
+                    {
+                        shortWeights[weight++] = (short)q;
+                    }
+                }
+
+                biases[neuron++] = Math.round(genome[offset++] * biasScale);
+            }
+        }
+    }
+
+    public final void think(final double[] inputs, final double[] outputs)
+    {
+        think(inputs, 0, outputs, 0);
+    }
+
+    // iterate the network, reading getNumberOfInputs() inputs from inputs[inputsOffset ...] and writing the outputs to outputs[outputsOffset ...]
+    //
+    // note, the inputs are truncated (rather than rounded) to the activation scale, i.e. an error of less than 2^-ACTIVATION_FRACTION_BITS
+    //
+    public final void think(final double[] inputs, final int inputsOffset, final double[] outputs, final int outputsOffset)
+    {
+        final int numberOfInputs = layerSizes[0];
+        for (int i = 0; i < numberOfInputs; i++) inputActivations[i] = (int)(inputs[inputsOffset + i] * ACTIVATION_SCALE);
+
+        int[] layerInputs = inputActivations;
+        int weight = 0, neuron = 0;
+        for (int layer = 1; layer < layerSizes.length; layer++)
+        {
+            final int numberOfLayerInputs = layerSizes[layer - 1];
+            final int numberOfLayerNeurons = layerSizes[layer];
+            final int[] layerOutputs = (layerInputs == layerBufferA) ? layerBufferB : layerBufferA;
+            if (byteWeights != null)
+            {
+                multiplyAccumulate(layerInputs, numberOfLayerInputs, byteWeights, weight, neuron, numberOfLayerNeurons);
+            }
+            else
+            {
+                multiplyAccumulate(layerInputs, numberOfLayerInputs, shortWeights, weight, neuron, numberOfLayerNeurons);
+            }
+
+            weight += (numberOfLayerInputs * numberOfLayerNeurons);
+
+            // integer ReLU, then either back to the activation scale (rounding and saturating) or to double for the final layer
+            //
+            final int shift = weightShifts[layer - 1];
+            if (layer == layerSizes.length - 1)
+            {
+                final double outputScale = outputScales[layer - 1];
+                for (int n = 0; n < numberOfLayerNeurons; n++) outputs[outputsOffset + n] = Math.max(0L, accumulators[neuron + n]) * outputScale;
+            }
+            else
+            {
+                final long rounding = 1L << (shift - 1);
+                for (int n = 0; n < numberOfLayerNeurons; n++) layerOutputs[n] = (int)Math.min((Math.max(0L, accumulators[neuron + n]) + rounding) >> shift, Integer.MAX_VALUE);
+            }
+
+            neuron += numberOfLayerNeurons;
+            layerInputs = layerOutputs;
+        }
+    }
+
+    private final void multiplyAccumulate(final int[] layerInputs, final int numberOfLayerInputs, final byte[] weights, int weight, final int neuron, final int numberOfLayerNeurons)
+    {
+        for (int n = neuron, end = neuron + numberOfLayerNeurons; n < end; n++)
+        {
+            long accumulator = biases[n];
+            for (int i = 0; i < numberOfLayerInputs; i++) accumulator += ((long)layerInputs[i] * weights[weight + i]);
+            accumulators[n] = accumulator;
+            weight += numberOfLayerInputs;
+        }
+    }
+
+    private final void multiplyAccumulate(final int[] layerInputs, final int numberOfLayerInputs, final short[] weights, int weight, final int neuron, final int numberOfLayerNeurons)
+    {
+        for (int n = neuron, end = neuron + numberOfLayerNeurons; n < end; n++)
+        {
+            long accumulator = biases[n];
+            for (int i = 0; i < numberOfLayerInputs; i++) accumulator += ((long)layerInputs[i] * weights[weight + i]);
+            accumulators[n] = accumulator;
+            weight += numberOfLayerInputs;
+        }
+    }
+}
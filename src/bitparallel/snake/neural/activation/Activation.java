@@ -4,8 +4,18 @@
 
 package bitparallel.snake.neural.activation;
 
+//
+// a neuron's activation function, either per neuron, threshold(), or in bulk, apply()
+//
+// note, apply() thresholds values[from ... to - 1] in place, the networks call it once per layer rather than once per neuron, so each
+//       implementation's loop is a single monomorphic call site that the JIT can inline and (for ReLU) vectorise
+//
+
 public interface Activation
 {
     public double threshold(final double input);
+    public float threshold(final float input);
+    public void apply(final double[] values, final int from, final int to);
+    public void apply(final float[] values, final int from, final int to);
     public String getDescription();
 }
@@ -7,26 +7,59 @@ package bitparallel.snake.neural.activation;
 public class ExpLU implements Activation
 {
     private final double alpha;
+    private final boolean approximate;
 
     public ExpLU()
     {
         alpha = 0.3;
+        approximate = false;
     }
 
     public ExpLU(final double alpha)
     {
         this.alpha = alpha;
+        approximate = false;
+    }
+
+    // note, approximate uses FastExp rather than Math.exp(), i.e. a relative error of less than FastExp.RELATIVE_ERROR_BOUND in exp()
+    //
+    public ExpLU(final double alpha, final boolean approximate)
+    {
+        this.alpha = alpha;
+        this.approximate = approximate;
     }
 
     public double threshold(final double input)
     {
         if (input >= 0.0) return input;
 
-        return alpha * (Math.exp(input) -1);
+        return alpha * (exp(input) -1);
+    }
+
+    public float threshold(final float input)
+    {
+        if (input >= 0.0f) return input;
+
+        return (float)(alpha * (exp(input) -1));
+    }
+
+    public void apply(final double[] values, final int from, final int to)
+    {
+        for (int i = from; i < to; i++) values[i] = threshold(values[i]);
+    }
+
+    public void apply(final float[] values, final int from, final int to)
+    {
+        for (int i = from; i < to; i++) values[i] = threshold(values[i]);
     }
 
     public String getDescription()
     {
-        return "ExpLU";
+        return approximate ? "ExpLU, approximate exp" : "ExpLU";
+    }
+
+    private final double exp(final double x)
+    {
+        return approximate ? FastExp.exp(x) : Math.exp(x);
     }
 }
@@ -0,0 +1,57 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake.neural.activation;
+
+//
+// a table driven approximation of Math.exp(), optionally used by Sigmoid and ExpLU
+//
+//   exp(x) = 2^t, t = x * log2(e), split into t = k + (i + f) / TABLE_SIZE, i.e. an integer power k, a table index i and a fraction f
+//   2^k is built directly from the exponent bits and 2^((i + f) / TABLE_SIZE) is linearly interpolated between adjacent table entries
+//
+// notes 1, the interpolation error of 2^u over an interval of width h = 1 / TABLE_SIZE is bounded by (h * ln(2))^2 / 8 relative to the
+//          result, i.e. 5.8e-8 for the 1024 entry table, so a sigmoid built on it is within 1.5e-8 (absolute) of the exact sigmoid
+//       2, results below 2^-1022 (x < -708.4) are flushed to 0.0 rather than returned as subnormals, results above Double.MAX_VALUE are
+//          infinite and a NaN input returns NaN
+//       3, unlike Math.exp() the result is not monotonic to the last bit, which doesn't matter to an activation function
+//
+
+public class FastExp
+{
+    public static final int TABLE_BITS = 10;
+    public static final double RELATIVE_ERROR_BOUND = 5.8e-8;
+
+    private static final int TABLE_SIZE = 1 << TABLE_BITS;
+    private static final double LOG2_E = 1.0 / Math.log(2.0);
+    private static final double[] POWERS = new double[TABLE_SIZE + 1];
+
+    static
+    {
+        for (int i = 0; i <= TABLE_SIZE; i++) POWERS[i] = Math.pow(2.0, (double)i / TABLE_SIZE);
+    }
+
+    private FastExp()
+    {
+    }
+
+    public static final double exp(final double x)
+    {
+        final double t = x * LOG2_E;
+        if (t < -1022.0) return 0.0;
+        if (!(t < 1023.0)) return (t > 0.0) ? Double.POSITIVE_INFINITY : Double.NaN;
+
+        final double scaled = t * TABLE_SIZE;
+        final double floor = Math.floor(scaled);
+        final long n = (long)floor;
+        final double fraction = scaled - floor;
+
+        // note, the arithmetic shift is a floor division, so the index is always in [0, TABLE_SIZE)
+        //
+        final int index = (int)(n & (TABLE_SIZE - 1));
+        final long k = n >> TABLE_BITS;
+        final double power = POWERS[index] + (fraction * (POWERS[index + 1] - POWERS[index]));
+
+        return power * Double.longBitsToDouble((k + 1023L) << 52);
+    }
+}
@@ -11,6 +11,21 @@ public class ReLU implements Activation
         return Math.max(0.0, input);
     }
 
+    public float threshold(final float input)
+    {
+        return Math.max(0.0f, input);
+    }
+
+    public void apply(final double[] values, final int from, final int to)
+    {
+        for (int i = from; i < to; i++) values[i] = Math.max(0.0, values[i]);
+    }
+
+    public void apply(final float[] values, final int from, final int to)
+    {
+        for (int i = from; i < to; i++) values[i] = Math.max(0.0f, values[i]);
+    }
+
     public String getDescription()
     {
         return "ReLU";
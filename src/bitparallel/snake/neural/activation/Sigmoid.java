@@ -7,10 +7,12 @@ package bitparallel.snake.neural.activation;
 public class Sigmoid implements Activation
 {
     private final double slope;
+    private final boolean approximate;
 
     public Sigmoid()
     {
         slope = 1.0;
+        approximate = false;
     }
 
     // note, to widen the sigmoid use slope values < 1.0
@@ -18,6 +20,15 @@ public class Sigmoid implements Activation
     public Sigmoid(double slope)
     {
         this.slope = slope;
+        approximate = false;
+    }
+
+    // note, approximate uses FastExp rather than Math.exp(), i.e. an absolute error of less than 1.5e-8
+    //
+    public Sigmoid(final double slope, final boolean approximate)
+    {
+        this.slope = slope;
+        this.approximate = approximate;
     }
 
     public final double threshold(final double input)
@@ -26,11 +37,35 @@ public class Sigmoid implements Activation
         if (input < -10.0) return 1.0;
 
         final double power = slope * input;
-        return 1.0 / (1.0 + Math.exp(-power));
+        return 1.0 / (1.0 + exp(-power));
+    }
+
+    public final float threshold(final float input)
+    {
+        if (input > 10.0f) return 0.0f;
+        if (input < -10.0f) return 1.0f;
+
+        final double power = slope * input;
+        return (float)(1.0 / (1.0 + exp(-power)));
+    }
+
+    public final void apply(final double[] values, final int from, final int to)
+    {
+        for (int i = from; i < to; i++) values[i] = threshold(values[i]);
+    }
+
+    public final void apply(final float[] values, final int from, final int to)
+    {
+        for (int i = from; i < to; i++) values[i] = threshold(values[i]);
     }
 
     public String getDescription()
     {
-        return "Sigmoid, slope = 1.0, limits[-10.0, 10.0]";
+        return "Sigmoid, slope = " + slope + ", limits[-10.0, 10.0]" + (approximate ? ", approximate exp" : "");
+    }
+
+    private final double exp(final double x)
+    {
+        return approximate ? FastExp.exp(x) : Math.exp(x);
     }
 }
@@ -0,0 +1,26 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake.random;
+
+//
+// the source of all random numbers used during the evolution
+//
+// notes 1, implementations are not thread safe, an instance must only be used by one thread at a time
+//       2, each snake's stream is seeded from the snake pit's master stream, see SnakePit and Snake.reset(), so a given master seed
+//          always produces the same results, regardless of how many threads are used
+//       3, getState() and setState() capture and restore the complete generator state, as used by the population checkpoints
+//       4, setSeed() reinitialises the generator, it is then indistinguishable from a new instance constructed using the same seed
+//
+
+public interface RandomSource
+{
+    public int nextInt(final int exclusiveMaximum);
+    public long nextLong();
+    public double nextDouble();
+    public double nextGaussian();
+    public void setSeed(final long seed);
+    public long[] getState();
+    public void setState(final long[] state);
+}
@@ -0,0 +1,121 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake.random;
+
+//
+// a xoshiro256** generator, see https://prng.di.unimi.it
+//
+// notes 1, the 256 bit state is expanded from a 64 bit seed using splitmix64, as recommended by the xoshiro authors
+//       2, nextInt() and nextGaussian() use the same algorithms as java.util.Random, i.e. rejection sampling and the polar method
+//
+
+public final class XoshiroRandom implements RandomSource
+{
+    private long s0, s1, s2, s3;
+    private double nextNextGaussian;
+    private boolean haveNextNextGaussian;
+
+    public XoshiroRandom(final long seed)
+    {
+        setSeed(seed);
+    }
+
+    public final void setSeed(final long seed)
+    {
+        long x = seed;
+        s0 = splitMix64(x += 0x9e3779b97f4a7c15L);
+        s1 = splitMix64(x += 0x9e3779b97f4a7c15L);
+        s2 = splitMix64(x += 0x9e3779b97f4a7c15L);
+        s3 = splitMix64(x += 0x9e3779b97f4a7c15L);
+        haveNextNextGaussian = false;
+    }
+
+    public final long nextLong()
+    {
+        final long result = Long.rotateLeft(s1 * 5, 7) * 9;
+        final long t = s1 << 17;
+
+        s2 ^= s0;
+        s3 ^= s1;
+        s1 ^= s2;
+        s0 ^= s3;
+        s2 ^= t;
+        s3 = Long.rotateLeft(s3, 45);
+
+        return result;
+    }
+
+    public final int nextInt(final int exclusiveMaximum)
+    {
+        if (exclusiveMaximum <= 0) throw new IllegalArgumentException("The exclusive maximum must be positive, value: " + exclusiveMaximum);
+
+        // use the top 31 bits, these are the best quality bits of the xoshiro output
+        //
+        int r = (int)(nextLong() >>> 33);
+        final int m = exclusiveMaximum - 1;
+        if ((exclusiveMaximum & m) == 0) return (int)((exclusiveMaximum * (long)r) >> 31);
+
+        for (int u = r; (u - (r = u % exclusiveMaximum) + m) < 0; u = (int)(nextLong() >>> 33));
+        return r;
+    }
+
+    public final double nextDouble()
+    {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    public final double nextGaussian()
+    {
+        if (haveNextNextGaussian)
+        {
+            haveNextNextGaussian = false;
+            return nextNextGaussian;
+        }
+
+        double v1, v2, s;
+        do
+        {
+            v1 = (2.0 * nextDouble()) - 1.0;
+            v2 = (2.0 * nextDouble()) - 1.0;
+            s = (v1 * v1) + (v2 * v2);
+        }
+        while ((s >= 1.0) || (s == 0.0));
+
+        final double multiplier = StrictMath.sqrt(-2.0 * StrictMath.log(s) / s);
+        nextNextGaussian = v2 * multiplier;
+        haveNextNextGaussian = true;
+
+        return v1 * multiplier;
+    }
+
+    // note, the state includes any pending gaussian value
+    //
+    public final long[] getState()
+    {
+        return new long[] {s0, s1, s2, s3, haveNextNextGaussian ? 1 : 0, Double.doubleToRawLongBits(nextNextGaussian)};
+    }
+
+    public final void setState(final long[] state)
+    {
+        if (state.length != 6) throw new IllegalArgumentException("Incorrect XoshiroRandom state length: " + state.length + ", requires: 6");
+        if ((state[0] | state[1] | state[2] | state[3]) == 0) throw new IllegalArgumentException("The XoshiroRandom state must not be all zeros");
+
+        s0 = state[0];
+        s1 = state[1];
+        s2 = state[2];
+        s3 = state[3];
+        haveNextNextGaussian = (state[4] != 0);
+        nextNextGaussian = Double.longBitsToDouble(state[5]);
+    }
+
+    private static final long splitMix64(final long value)
+    {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,80 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake.ui;
+
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+//
+// draws the whole grid into a single Canvas, i.e. one node regardless of the grid size or the snake's length
+//
+// notes 1, each drawCell() repaints just that cell, background first, so a move costs a few rectangles however long the snake is
+//       2, the canvas is only presented once per pulse, so any number of moves drawn within a pulse cost a single frame
+//       3, cells smaller than MINIMUM_OUTLINED_CELL_SIZE pixels are drawn as plain squares, i.e. without the rounded black outline
+//
+
+public class CanvasRenderer implements SnakeRenderer
+{
+    private static final int MINIMUM_OUTLINED_CELL_SIZE = 6;
+
+    private final int width, height, cellWidth, cellHeight;
+    private final double arcWidth, arcHeight;
+    private final boolean outlined;
+    private final Canvas canvas;
+    private final GraphicsContext graphics;
+
+    public CanvasRenderer(final int gridWidth, final int gridHeight, final int cellWidth, final int cellHeight)
+    {
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+
+        width = gridWidth * cellWidth;
+        height = gridHeight * cellHeight;
+        arcWidth = cellWidth >> 1;
+        arcHeight = cellHeight >> 1;
+        outlined = Math.min(cellWidth, cellHeight) >= MINIMUM_OUTLINED_CELL_SIZE;
+
+        canvas = new Canvas(width, height);
+        graphics = canvas.getGraphicsContext2D();
+        graphics.setStroke(Color.BLACK);
+        clear();
+    }
+
+    public final Node getNode()
+    {
+        return canvas;
+    }
+
+    public final void clear()
+    {
+        graphics.setFill(GridCell.Empty.getColour());
+        graphics.fillRect(0, 0, width, height);
+    }
+
+    // note, the outline is inset by half a pixel so that it stays within the cell, i.e. it's never left behind when a neighbour is cleared
+    //
+    public final void drawCell(final int gridX, final int gridY, final GridCell cell)
+    {
+        final double x = gridX * cellWidth;
+        final double y = gridY * cellHeight;
+
+        graphics.setFill(GridCell.Empty.getColour());
+        graphics.fillRect(x, y, cellWidth, cellHeight);
+        if (cell == GridCell.Empty) return;
+
+        graphics.setFill(cell.getColour());
+        if (outlined)
+        {
+            graphics.fillRoundRect(x + 0.5, y + 0.5, cellWidth - 1, cellHeight - 1, arcWidth, arcHeight);
+            graphics.strokeRoundRect(x + 0.5, y + 0.5, cellWidth - 1, cellHeight - 1, arcWidth, arcHeight);
+        }
+        else
+        {
+            graphics.fillRect(x, y, cellWidth, cellHeight);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake.ui;
+
+import javafx.scene.paint.Color;
+
+//
+// the contents of a grid cell, as drawn by a SnakeRenderer, an Empty cell is drawn in the background colour
+//
+
+public enum GridCell
+{
+    Empty(Color.LIGHTGREY),
+    Body(Color.PINK),
+    Head(Color.RED),
+    Food(Color.ORANGE);
+
+    private final Color colour;
+
+    private GridCell(final Color colour)
+    {
+        this.colour = colour;
+    }
+
+    public final Color getColour()
+    {
+        return colour;
+    }
+}
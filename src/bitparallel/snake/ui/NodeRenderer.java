@@ -0,0 +1,78 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake.ui;
+
+import java.util.Arrays;
+
+import javafx.scene.Node;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+
+//
+// the original renderer, a Rectangle node per occupied cell on a Pane, indexed by cell so a move only touches the changed cells
+//
+// notes 1, the scene graph grows with the snake and each removal is a search of the pane's children, i.e. best kept to small grids
+//       2, empty cells have no node, the background is that of the viewer
+//
+
+public class NodeRenderer implements SnakeRenderer
+{
+    private final int gridWidth, cellWidth, cellHeight;
+    private final Pane pane;
+    private final Rectangle[] cellNodes;
+
+    public NodeRenderer(final int gridWidth, final int gridHeight, final int cellWidth, final int cellHeight)
+    {
+        this.gridWidth = gridWidth;
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+
+        pane = new Pane();
+        cellNodes = new Rectangle[gridWidth * gridHeight];
+    }
+
+    public final Node getNode()
+    {
+        return pane;
+    }
+
+    public final void clear()
+    {
+        pane.getChildren().clear();
+        Arrays.fill(cellNodes, null);
+    }
+
+    public final void drawCell(final int gridX, final int gridY, final GridCell cell)
+    {
+        final int index = gridY * gridWidth + gridX;
+        final Rectangle cellNode = cellNodes[index];
+        if (cell == GridCell.Empty)
+        {
+            if (cellNode != null)
+            {
+                pane.getChildren().remove(cellNode);
+                cellNodes[index] = null;
+            }
+
+            return;
+        }
+
+        if (cellNode == null)
+        {
+            final Rectangle segment = new Rectangle(gridX * cellWidth, gridY * cellHeight, cellWidth, cellHeight);
+            segment.setArcWidth(cellWidth >> 1);
+            segment.setArcHeight(cellHeight >> 1);
+            segment.setStroke(Color.BLACK);
+            segment.setFill(cell.getColour());
+            pane.getChildren().add(segment);
+            cellNodes[index] = segment;
+        }
+        else
+        {
+            cellNode.setFill(cell.getColour());
+        }
+    }
+}
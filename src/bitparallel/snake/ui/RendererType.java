@@ -0,0 +1,18 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake.ui;
+
+//
+// the SnakeViewer's renderers
+//
+//   Nodes, a Rectangle node per occupied cell, i.e. the scene graph grows with the snake, see NodeRenderer
+//   Canvas, a single Canvas redrawn a cell at a time, i.e. a constant scene graph regardless of the grid size, see CanvasRenderer
+//
+
+public enum RendererType
+{
+    Nodes,
+    Canvas
+}
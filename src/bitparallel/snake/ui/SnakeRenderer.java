@@ -0,0 +1,19 @@
+//
+// (c) Bit Parallel Ltd, January 2021
+//
+
+package bitparallel.snake.ui;
+
+import javafx.scene.Node;
+
+//
+// draws the snake grid for a SnakeViewer, a cell at a time, i.e. the viewer only redraws the cells changed by each move
+// note, only ever called on the FX application thread
+//
+
+public interface SnakeRenderer
+{
+    public Node getNode();
+    public void clear();
+    public void drawCell(int gridX, int gridY, GridCell cell);
+}
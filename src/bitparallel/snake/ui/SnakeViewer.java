@@ -4,178 +4,286 @@
 
 package bitparallel.snake.ui;
 
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
 
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
-import javafx.collections.ObservableList;
-import javafx.scene.Node;
 import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.Slider;
 import javafx.scene.layout.BorderPane;
-import javafx.scene.layout.Pane;
+import javafx.scene.layout.HBox;
 import javafx.scene.layout.StackPane;
-import javafx.scene.paint.Color;
-import javafx.scene.shape.Rectangle;
 import javafx.stage.Stage;
 
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
 import bitparallel.snake.Snake;
-import bitparallel.snake.geometry.Movement;
-import bitparallel.snake.geometry.Point;
+import bitparallel.snake.SnakeTrace;
+
+//
+// animates each generation's champion, decoupled from the evolution by a latest-wins mailbox
+//
+// notes 1, the evolution thread only ever posts the champion's trace to the mailbox, see animate(), it never waits for the UI
+//       2, an AnimationTimer, i.e. the FX application thread, plays the trace a move every ANIMATION_DELAY ms (at 1x) and, once it has
+//          finished, takes whichever champion is then in the mailbox, so any champions posted whilst it was playing, bar the latest, are skipped
+//       3, the speed scales ANIMATION_DELAY at runtime, see setSpeed() and the speed slider, every move that falls due is played on the
+//          next pulse, i.e. above the display's refresh rate the intermediate frames are skipped rather than the moves slowed down
+//       4, each move only redraws the cells that it changes, i.e. the old head, the new head, the vacated tail and the new food
+//       5, the cell size shrinks from SNAKE_SEGMENT_SIZE to fit large grids into MAXIMUM_VIEW_SIZE pixels, e.g. 4 pixels for 200 x 200
+//
 
 public class SnakeViewer
 {
+    public static final double MINIMUM_SPEED = 0.25;
+    public static final double MAXIMUM_SPEED = 64.0;
+
     private static final Logger logger = LogManager.getLogger(SnakeViewer.class);
 
-    private static int SNAKE_SEGMENT_WIDTH = 20;
-    private static int SNAKE_SEGMENT_HEIGHT = 20;
-    private static int SNAKE_SEGMENT_ARC_WIDTH = SNAKE_SEGMENT_WIDTH >> 1;
-    private static int SNAKE_SEGMENT_ARC_HEIGHT = SNAKE_SEGMENT_HEIGHT >> 1;
-    private static Color SNAKE_BODY_COLOUR = Color.PINK;
-    private static Color SNAKE_HEAD_COLOUR = Color.RED;
-    private static Color SNAKE_FOOD_COLOUR = Color.ORANGE;
+    private static int SNAKE_SEGMENT_SIZE = 20;
+    private static int MAXIMUM_VIEW_SIZE = 800;
     private static long ANIMATION_DELAY = 40;
+    private static long ANIMATION_DELAY_NANOS = ANIMATION_DELAY * 1000000L;
 
-    private final int width, height;
-    private final Pane drawingPane;
-    private Point foodPosition;
+    private final SnakeRenderer renderer;
+    private final Slider speedSlider;
+    private final Label speedLabel;
+    private final AtomicReference<SnakeTrace> mailbox;
+    private long skippedChampions;
+
+    // only accessed by the FX application thread
+    //
+    private SnakeTrace trace;
+    private int moveIndex, headX, headY, foodIndex;
+    private int[] bodyX, bodyY;
+    private int bodyHead, bodyTail;
+    private double speed, movesDue;
+    private long lastFrameTime;
 
     public SnakeViewer(final Stage stage, final int aiGridWidth, final int aiGridHeight)
     {
-        width = aiGridWidth * SNAKE_SEGMENT_WIDTH;
-        height = aiGridHeight * SNAKE_SEGMENT_HEIGHT;
-        drawingPane = new Pane();
+        this(stage, aiGridWidth, aiGridHeight, RendererType.Canvas);
+    }
+
+    public SnakeViewer(final Stage stage, final int aiGridWidth, final int aiGridHeight, final RendererType rendererType)
+    {
+        final int cellSize = Math.max(1, Math.min(SNAKE_SEGMENT_SIZE, MAXIMUM_VIEW_SIZE / Math.max(aiGridWidth, aiGridHeight)));
+        switch (rendererType)
+        {
+            case Nodes:
+                renderer = new NodeRenderer(aiGridWidth, aiGridHeight, cellSize, cellSize);
+                break;
+
+            case Canvas:
+                renderer = new CanvasRenderer(aiGridWidth, aiGridHeight, cellSize, cellSize);
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unable to create the snake renderer, bad RendererType enum");
+        }
 
         final StackPane stack = new StackPane();
         stack.setStyle("-fx-background-color: lightgrey;");
-        stack.getChildren().add(drawingPane);
+        stack.setPrefSize(aiGridWidth * cellSize, aiGridHeight * cellSize);
+        stack.getChildren().add(renderer.getNode());
+
+        // note, the slider's value is the log2 of the speed, snapped to the powers of two
+        //
+        speedSlider = new Slider(log2(MINIMUM_SPEED), log2(MAXIMUM_SPEED), 0.0);
+        speedSlider.setMajorTickUnit(1.0);
+        speedSlider.setMinorTickCount(0);
+        speedSlider.setSnapToTicks(true);
+        speedSlider.setShowTickMarks(true);
+        speedSlider.valueProperty().addListener((value, oldValue, newValue) -> updateSpeed(Math.pow(2.0, newValue.doubleValue())));
+        speedLabel = new Label();
 
         final BorderPane pane = new BorderPane();
         pane.setCenter(stack);
+        pane.setBottom(new HBox(8.0, new Label("Speed"), speedSlider, speedLabel));
 
         stage.setTitle("Genetic Snake");
-        stage.setScene(new Scene(pane, width, height));
+        stage.setScene(new Scene(pane));
         stage.sizeToScene();
         stage.setResizable(false);
         stage.show();
 
         stage.setOnCloseRequest(closeEvent -> Platform.exit());
+
+        mailbox = new AtomicReference<SnakeTrace>();
+        skippedChampions = 0;
+        trace = null;
+        updateSpeed(1.0);
+
+        // note, the viewer is constructed on the FX application thread, as is the timer's handle()
+        //
+        final AnimationTimer timer = new AnimationTimer()
+        {
+            @Override
+            public void handle(final long now)
+            {
+                nextFrame(now);
+            }
+        };
+
+        timer.start();
     }
 
-    public final void animate(final Snake snake)
+    // sets the playback speed, i.e. a multiple of a move every ANIMATION_DELAY ms, takes effect from the next pulse
+    // note, call on the FX application thread, the speed slider follows the new speed
+    //
+    public final void setSpeed(final double speed)
     {
-        if (snake.getMovements().size() == 0)
+        if ((speed < MINIMUM_SPEED) || (speed > MAXIMUM_SPEED))
         {
-            logger.info("No generated movements for the best snake, unable to aminate, skipping...");
-            return;
+            final StringBuffer sb = new StringBuffer();
+            sb.append("The animation speed must be between ").append(MINIMUM_SPEED).append(" and ").append(MAXIMUM_SPEED).append(", not ").append(speed);
+            throw new IllegalArgumentException(sb.toString());
         }
 
-        final LinkedList<Point> segments = snake.getHatchling();
-        final Iterator<Point>	food = snake.getFoodLocations().iterator();
+        speedSlider.setValue(log2(speed));
+        updateSpeed(speed);
+    }
 
-        // draw the food and then the initial snake
-        //
-        final CountDownLatch initialLatch = new CountDownLatch(1);
-        foodPosition = food.next();
-        Platform.runLater(() -> {
-            drawingPane.getChildren().clear();
-            drawSegment(foodPosition, SNAKE_FOOD_COLOUR);
-            for (int i = 0; i < segments.size() - 1; i++) drawSegment(segments.get(i), SNAKE_BODY_COLOUR);
-            drawSegment(segments.get(segments.size() - 1), SNAKE_HEAD_COLOUR);
-            initialLatch.countDown();
-        });
-
-        try
+    public final double getSpeed()
+    {
+        return speed;
+    }
+
+    // posts the snake's trace to the animation and returns immediately, replacing any champion that is still waiting to be animated
+    //
+    // notes 1, called by the evolution thread, the trace is decoded a move at a time as the animation progresses, see SnakeTrace
+    //       2, only the trace is passed, the snake itself may be reset and reused by the snake pit whilst it's being animated, however
+    //          a snake records each episode into a new trace, i.e. a trace is never modified once its episode has ended
+    //
+    public final void animate(final Snake snake)
+    {
+        final SnakeTrace championTrace = snake.getTrace();
+        if (championTrace.getMoveCount() == 0)
         {
-            initialLatch.await();
+            logger.info("No generated movements for the best snake, unable to aminate, skipping...");
+            return;
         }
-        catch (InterruptedException ex)
+
+        if (mailbox.getAndSet(championTrace) != null)
         {
-            logger.warn("Pre-animation latch interrupted, ignored...");
+            skippedChampions++;
+            logger.debug("The previous champion was never animated, skipped champions: " + skippedChampions);
         }
+    }
 
-        sleep(ANIMATION_DELAY);
-
-        // animate the snake
-        //
-        for (Movement movement : snake.getMovements())
+    // called by the AnimationTimer on every pulse, i.e. the FX application thread
+    //
+    private final void nextFrame(final long now)
+    {
+        if (trace != null)
         {
-            final CountDownLatch animateLatch = new CountDownLatch(1);
-            final ObservableList<Node> segmentNodes = drawingPane.getChildren();
-            Platform.runLater(() -> {
-                // convert the existing head to a body segment
-                //
-                final Rectangle segmentNode = (Rectangle)segmentNodes.get(segmentNodes.size() - 1);
-                segmentNode.setFill(SNAKE_BODY_COLOUR);
-
-                // add the new head segment
-                //
-                final Point head = segments.getLast();
-                final Point newHead = movement.translate(head);
-                drawSegment(newHead, SNAKE_HEAD_COLOUR);
-                segments.addLast(newHead);
-
-                // did the snake "eat" the food? if so then update it's location to the next position
-                //
-                final boolean foundFood = foodPosition.equals(newHead);
-                if (foundFood)
-                {
-                    if (food.hasNext())
-                    {
-                        foodPosition = food.next();
-                        final Rectangle foodNode = (Rectangle)segmentNodes.get(0);
-                        foodNode.setX(foodPosition.getX() * SNAKE_SEGMENT_WIDTH);
-                        foodNode.setY(foodPosition.getY() * SNAKE_SEGMENT_HEIGHT);
-                    }
-                }
-                else
+            movesDue += (now - lastFrameTime) * speed / ANIMATION_DELAY_NANOS;
+            lastFrameTime = now;
+
+            // note, only the state after the last of the due moves is ever displayed, i.e. frame skipping above 1 move per pulse
+            //
+            final int moveCount = trace.getMoveCount();
+            if (moveIndex < moveCount)
+            {
+                while ((movesDue >= 1.0) && (moveIndex < moveCount))
                 {
-                    // remove the tail, but only if the food wasn't found, i.e. allow the snake to grow after it's eaten
-                    //
-                    drawingPane.getChildren().remove(1, 2);
-                    segments.removeFirst();
+                    moveHead(trace.getMove(moveIndex++));
+                    movesDue -= 1.0;
                 }
 
-                animateLatch.countDown();
-            });
-
-            try
-            {
-                animateLatch.await();
-            }
-            catch (InterruptedException ex)
-            {
-                logger.warn("Animation latch interrupted, ignored...");
+                return;
             }
 
-            sleep(ANIMATION_DELAY);
+            // the final move has been shown for a move's delay, or for a single pulse if the moves are faster than the pulses
+            //
+            if (movesDue < 1.0) return;
+            trace = null;
+        }
+
+        final SnakeTrace nextTrace = mailbox.getAndSet(null);
+        if (nextTrace != null)
+        {
+            trace = nextTrace;
+            moveIndex = 0;
+            movesDue = 0.0;
+            lastFrameTime = now;
+            drawHatchling();
         }
     }
 
-    private final void drawSegment(final Point point, final Color paint)
+    // draw the food and then the initial snake
+    //
+    // note, the body is held as a ring buffer of cells, tail first, sized for the snake eating all of the food, i.e. it never wraps onto itself
+    //
+    private final void drawHatchling()
     {
-        final double x = point.getX() * SNAKE_SEGMENT_WIDTH;
-        final double y = point.getY() * SNAKE_SEGMENT_HEIGHT;
-        final Rectangle segment = new Rectangle(x, y, SNAKE_SEGMENT_WIDTH, SNAKE_SEGMENT_HEIGHT);
-        segment.setArcWidth(SNAKE_SEGMENT_ARC_WIDTH);
-        segment.setArcHeight(SNAKE_SEGMENT_ARC_HEIGHT);
-        segment.setStroke(Color.BLACK);
-        segment.setFill(paint);
-        drawingPane.getChildren().add(segment);
+        final int hatchlingLength = trace.getHatchlingLength();
+        final int maximumLength = hatchlingLength + trace.getFoodCount();
+        if ((bodyX == null) || (bodyX.length < maximumLength))
+        {
+            bodyX = new int[maximumLength];
+            bodyY = new int[maximumLength];
+        }
+
+        renderer.clear();
+        foodIndex = 0;
+        renderer.drawCell(trace.getFoodX(foodIndex), trace.getFoodY(foodIndex), GridCell.Food);
+
+        bodyTail = 0;
+        bodyHead = hatchlingLength - 1;
+        for (int i = 0; i < hatchlingLength; i++)
+        {
+            bodyX[i] = trace.getHatchlingX(i);
+            bodyY[i] = trace.getHatchlingY(i);
+            renderer.drawCell(bodyX[i], bodyY[i], (i == bodyHead) ? GridCell.Head : GridCell.Body);
+        }
+
+        headX = bodyX[bodyHead];
+        headY = bodyY[bodyHead];
     }
 
-    private final void sleep(final long time)
+    private final void moveHead(final int heading)
     {
-        try
+        // convert the existing head to a body segment
+        //
+        renderer.drawCell(headX, headY, GridCell.Body);
+
+        // did the snake "eat" the food? if not then remove the tail, i.e. allow the snake to grow after it's eaten
+        //
+        headX += SnakeTrace.getDx(heading);
+        headY += SnakeTrace.getDy(heading);
+        final boolean foundFood = (trace.getFoodX(foodIndex) == headX) && (trace.getFoodY(foodIndex) == headY);
+        if (!foundFood)
         {
-            Thread.sleep(time);
+            renderer.drawCell(bodyX[bodyTail], bodyY[bodyTail], GridCell.Empty);
+            bodyTail = (bodyTail + 1) % bodyX.length;
         }
-        catch (InterruptedException ex)
+
+        // add the new head segment, drawn after the tail's removal in case it's moved into the vacated cell
+        //
+        bodyHead = (bodyHead + 1) % bodyX.length;
+        bodyX[bodyHead] = headX;
+        bodyY[bodyHead] = headY;
+        renderer.drawCell(headX, headY, GridCell.Head);
+
+        // if the food was eaten then update it's location to the next position
+        //
+        if (foundFood && (foodIndex + 1 < trace.getFoodCount()))
         {
-            logger.warn("Animation frame delay interrupted, ignored...");
+            foodIndex++;
+            renderer.drawCell(trace.getFoodX(foodIndex), trace.getFoodY(foodIndex), GridCell.Food);
         }
     }
+
+    private final void updateSpeed(final double newSpeed)
+    {
+        speed = newSpeed;
+        speedLabel.setText(((speed == Math.rint(speed)) ? Long.toString((long)speed) : Double.toString(speed)) + "x");
+    }
+
+    private static final double log2(final double value)
+    {
+        return Math.log(value) / Math.log(2.0);
+    }
 }